@@ -0,0 +1,49 @@
+package com.cloud.vertx.jdbc.benchmarks;
+
+import com.cloud.vertx.jdbc.util.ArrayListUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArrayListUtils join/map/partition 基准测试。
+ *
+ * @author zhoudingyun
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArrayListUtilsBenchmark {
+    @Param({"6", "100"})
+    private int size;
+
+    private List<String> values;
+
+    @Setup
+    public void setup() {
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add("column_" + i);
+        }
+    }
+
+    @Benchmark
+    public String join() {
+        return ArrayListUtils.join(values, ", ");
+    }
+
+    @Benchmark
+    public List<String> map() {
+        return ArrayListUtils.map(values, "%s = ?");
+    }
+
+    @Benchmark
+    public List<String> partition() {
+        return ArrayListUtils.partition(values, 4, ", ");
+    }
+}
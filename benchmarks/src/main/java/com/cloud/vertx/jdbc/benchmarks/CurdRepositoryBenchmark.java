@@ -0,0 +1,48 @@
+package com.cloud.vertx.jdbc.benchmarks;
+
+import com.cloud.vertx.jdbc.CurdRepository;
+import com.cloud.vertx.jdbc.impl.JdbcRepositoryImpl;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CurdRepository.generateWhere 基准测试。
+ *
+ * @author zhoudingyun
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CurdRepositoryBenchmark {
+    private Vertx vertx;
+    private CurdRepository repository;
+    private JsonObject where;
+
+    @Setup
+    public void setup() {
+        vertx = Vertx.vertx();
+        // 指定方言时不检测数据库产品名，连接池在第一次获取连接时才创建，这里不会访问数据库
+        repository = new JdbcRepositoryImpl(vertx, new JsonObject().put("url", "jdbc:h2:mem:curd").put("dialect", "h2"), "user");
+        where = new JsonObject().put("name", "张三").put("uuid", "abc").put("status", 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public JsonArray generateWhere() {
+        StringBuilder conditions = new StringBuilder();
+        JsonArray arguments = new JsonArray();
+        repository.generateWhere(where, conditions, arguments);
+        return arguments;
+    }
+}
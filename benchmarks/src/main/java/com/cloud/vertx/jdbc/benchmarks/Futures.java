@@ -0,0 +1,28 @@
+package com.cloud.vertx.jdbc.benchmarks;
+
+import io.vertx.core.Future;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基准测试中同步等待vertx Future结果。
+ *
+ * @author zhoudingyun
+ */
+final class Futures {
+    private Futures() {
+    }
+
+    static <T> T await(Future<T> future) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.onComplete(ar -> {
+            if (ar.succeeded()) {
+                result.complete(ar.result());
+            } else {
+                result.completeExceptionally(ar.cause());
+            }
+        });
+        return result.get(30, TimeUnit.SECONDS);
+    }
+}
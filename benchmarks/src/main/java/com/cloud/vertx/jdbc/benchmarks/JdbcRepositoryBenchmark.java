@@ -0,0 +1,99 @@
+package com.cloud.vertx.jdbc.benchmarks;
+
+import com.cloud.vertx.jdbc.JdbcRepository;
+import com.cloud.vertx.jdbc.impl.JdbcRepositoryImpl;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.UpdateResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JdbcRepositoryImpl 端到端基准测试，使用H2内存数据库。
+ *
+ * @author zhoudingyun
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcRepositoryBenchmark {
+    private static final int ROWS = 1000;
+    private static final int BATCH = 100;
+
+    private final AtomicInteger ids = new AtomicInteger(ROWS);
+    private Vertx vertx;
+    private JdbcRepository repository;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject()
+                .put("url", "jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1")
+                .put("driver_class", "org.h2.Driver")
+                .put("max_pool_size", 8);
+        repository = new JdbcRepositoryImpl(vertx, config, "bench_user");
+        Futures.await(repository.execute("drop table if exists bench_user"));
+        Futures.await(repository.execute("create table bench_user (id int primary key, name varchar(32), uuid varchar(36), status int)"));
+        List<JsonArray> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new JsonArray().add(i).add("name" + i).add("uuid" + i).add(i % 4));
+        }
+        Futures.await(repository.batchWithParams("insert into bench_user (id, name, uuid, status) values (?, ?, ?, ?)", rows));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Futures.await(repository.execute("drop table bench_user"));
+        vertx.close();
+    }
+
+    @Benchmark
+    public List<JsonObject> query() throws Exception {
+        return Futures.await(repository.query("select id, name, uuid, status from bench_user where status = 1 limit 50"));
+    }
+
+    @Benchmark
+    public UpdateResult create() throws Exception {
+        int id = ids.getAndIncrement();
+        return Futures.await(repository.create(new JsonObject().put("id", id).put("name", "name" + id).put("uuid", "uuid" + id).put("status", 0)));
+    }
+
+    @Benchmark
+    public List<Integer> batchWithParams(Batch batch) throws Exception {
+        return Futures.await(repository.batchWithParams("insert into bench_user (id, name, uuid, status) values (?, ?, ?, ?)", batch.rows));
+    }
+
+    @Benchmark
+    public Integer createAll(Batch batch) throws Exception {
+        return Futures.await(repository.createAll(batch.objects));
+    }
+
+    /**
+     * 每次调用生成一批新主键的数据。
+     */
+    @State(Scope.Thread)
+    public static class Batch {
+        private List<JsonArray> rows;
+        private List<JsonObject> objects;
+
+        @Setup(Level.Invocation)
+        public void next(JdbcRepositoryBenchmark benchmark) {
+            rows = new ArrayList<>(BATCH);
+            objects = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                int id = benchmark.ids.getAndIncrement();
+                rows.add(new JsonArray().add(id).add("name" + id).add("uuid" + id).add(id % 4));
+                id = benchmark.ids.getAndIncrement();
+                objects.add(new JsonObject().put("id", id).put("name", "name" + id).put("uuid", "uuid" + id).put("status", id % 4));
+            }
+        }
+    }
+}
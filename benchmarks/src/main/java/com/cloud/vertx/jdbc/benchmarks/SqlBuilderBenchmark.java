@@ -0,0 +1,42 @@
+package com.cloud.vertx.jdbc.benchmarks;
+
+import com.cloud.vertx.jdbc.sql.TSqlBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TSqlBuilder 生成select/insert/update/delete语句基准测试。
+ *
+ * @author zhoudingyun
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SqlBuilderBenchmark {
+    private final String[] columns = {"id", "name", "uuid", "age", "sex", "status"};
+
+    @Benchmark
+    public String select() {
+        return new TSqlBuilder().select(columns).from("user")
+                .where("name=? AND status=?").orderBy("id desc").limit(10).offset(20).toString();
+    }
+
+    @Benchmark
+    public String insert() {
+        return new TSqlBuilder().insert().into("user").values(columns).toString();
+    }
+
+    @Benchmark
+    public String update() {
+        return new TSqlBuilder().update("user").set(columns).where("id=? AND uuid=?").toString();
+    }
+
+    @Benchmark
+    public String delete() {
+        return new TSqlBuilder().delete().from("user").where("id=? AND uuid=?").toString();
+    }
+}
@@ -1,15 +1,18 @@
 package com.cloud.vertx.jdbc;
 
+import com.cloud.vertx.jdbc.util.BeanRowMapper;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.sql.ResultSet;
 import io.vertx.ext.sql.SQLConnection;
 import io.vertx.ext.sql.SQLRowStream;
 import io.vertx.ext.sql.UpdateResult;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,6 +29,13 @@ public interface BaseRepository {
      */
     Future<SQLConnection> getConnection();
 
+    /**
+     * 连接使用统计，共用连接池时只统计本repository获取的连接。
+     *
+     * @return {acquired, failed, outstanding, maxOutstanding, avgWaitMillis}
+     */
+    JsonObject poolUsage();
+
     /**
      * 开始事务。
      *
@@ -63,51 +73,45 @@ public interface BaseRepository {
     }
 
     /**
-     * 提交事务。
+     * 提交事务，提交失败时回滚，完成后关闭连接。
+     * 需要自动获取连接、归还和冲突重试时使用 {@link JdbcRepository#inTransaction}。
      *
      * @param connection 数据库连接
      * @return Future<Void>
      */
     default Future<Void> commit(SQLConnection connection) {
-        Promise<Void> promise = Promise.promise();
-        if (connection != null) {
-            connection.commit(voidAsyncResult -> {
-                if (voidAsyncResult.succeeded()) {
-                    promise.complete();
-                } else {
-                    connection.rollback(ar -> {
-                        if (ar.succeeded()) {
-                            promise.fail(ar.cause());
-                        } else {
-                            RuntimeException runtimeException = new RuntimeException(voidAsyncResult.cause().getMessage(), ar.cause());
-                            promise.fail(runtimeException);
-                        }
-                    });
-                }
-                connection.close();
-            });
+        if (connection == null) {
+            return Future.failedFuture(new IllegalArgumentException("connection is null"));
         }
+        Promise<Void> promise = Promise.promise();
+        connection.commit(voidAsyncResult -> {
+            if (voidAsyncResult.succeeded()) {
+                connection.close(ar -> promise.complete());
+            } else {
+                // 回滚完成后再关闭连接，失败原因始终为提交的异常
+                connection.rollback(ar -> {
+                    if (ar.failed()) {
+                        voidAsyncResult.cause().addSuppressed(ar.cause());
+                    }
+                    connection.close(c -> promise.fail(voidAsyncResult.cause()));
+                });
+            }
+        });
         return promise.future();
     }
 
     /**
-     * 回滚事务。
+     * 回滚事务，完成后关闭连接。
      *
      * @param connection 数据库连接
      * @return Future<Void>
      */
     default Future<Void> rollback(SQLConnection connection) {
-        Promise<Void> promise = Promise.promise();
-        if (connection != null) {
-            connection.rollback(voidAsyncResult -> {
-                if (voidAsyncResult.succeeded()) {
-                    promise.complete();
-                } else {
-                    promise.fail(voidAsyncResult.cause());
-                }
-                connection.close();
-            });
+        if (connection == null) {
+            return Future.failedFuture(new IllegalArgumentException("connection is null"));
         }
+        Promise<Void> promise = Promise.promise();
+        connection.rollback(voidAsyncResult -> connection.close(ar -> promise.handle(voidAsyncResult)));
         return promise.future();
     }
 
@@ -223,6 +227,77 @@ public interface BaseRepository {
         return promise.future();
     }
 
+    /**
+     * 根据参数查询多条记录，按列下标映射为对象，不生成中间JsonObject。
+     * select id, name from user where status=1
+     *
+     * @param connection 数据库连接
+     * @param sql        sql语句 -> select id, name from user where status=?
+     * @param arguments  参数 -> [1]
+     * @param mapper     行映射函数 -> row -> new User(row.getLong(0), row.getString(1))
+     * @param handler    回调函数
+     * @return BaseRepository
+     */
+    default <T> BaseRepository query(SQLConnection connection, String sql, JsonArray arguments, RowMapper<T> mapper, Handler<AsyncResult<List<T>>> handler) {
+        connection.queryWithParams(sql, arguments, r -> {
+            if (r.failed()) {
+                handler.handle(Future.failedFuture(r.cause()));
+                return;
+            }
+            List<T> list;
+            try {
+                list = RowMapper.mapAll(r.result(), mapper);
+            } catch (RuntimeException e) {
+                handler.handle(Future.failedFuture(e));
+                return;
+            }
+            handler.handle(Future.succeededFuture(list));
+        });
+        return this;
+    }
+
+    /**
+     * 根据参数查询多条记录，按列下标映射为对象，不生成中间JsonObject。
+     * select id, name from user where status=1
+     *
+     * @param connection 数据库连接
+     * @param sql        sql语句 -> select id, name from user where status=?
+     * @param arguments  参数 -> [1]
+     * @param mapper     行映射函数 -> row -> new User(row.getLong(0), row.getString(1))
+     * @return Future<List < T>>
+     */
+    default <T> Future<List<T>> query(SQLConnection connection, String sql, JsonArray arguments, RowMapper<T> mapper) {
+        Promise<List<T>> promise = Promise.promise();
+        query(connection, sql, arguments, mapper, promise);
+        return promise.future();
+    }
+
+    /**
+     * 根据参数查询多条记录，按列名映射为JavaBean，列名忽略大小写和下划线匹配属性。
+     * select id, user_name from user where status=1
+     *
+     * @param connection 数据库连接
+     * @param sql        sql语句 -> select id, user_name from user where status=?
+     * @param arguments  参数 -> [1]
+     * @param type       结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    default <T> Future<List<T>> query(SQLConnection connection, String sql, JsonArray arguments, Class<T> type) {
+        Promise<List<T>> promise = Promise.promise();
+        connection.queryWithParams(sql, arguments, r -> {
+            if (r.failed()) {
+                promise.fail(r.cause());
+                return;
+            }
+            try {
+                promise.complete(RowMapper.mapAll(r.result(), BeanRowMapper.of(type, r.result().getColumnNames())));
+            } catch (RuntimeException e) {
+                promise.fail(e);
+            }
+        });
+        return promise.future();
+    }
+
     /**
      * 根据参数查询数据流。
      * select * from user where name='张三'
@@ -508,4 +583,65 @@ public interface BaseRepository {
         batchCallableWithParams(connection, sql, arguments1, arguments2, promise);
         return promise.future();
     }
+
+    /**
+     * 按顺序流水线执行多个sql，遇到第一个失败即停止，相邻的相同sql合并为一次批处理。
+     * 不负责开启事务，需要事务时由调用方控制。
+     *
+     * @param connection 数据库连接
+     * @param arguments  参数 -> [{sql:'update user set name=? where id=?', param:['张三', 1]}, ...]
+     * @param handler    回调函数 -> 每条sql的影响行数，批处理驱动未返回行数时为 -2(SUCCESS_NO_INFO)
+     * @return BaseRepository
+     */
+    default BaseRepository updatePipelineWithParams(SQLConnection connection, JsonArray arguments, Handler<AsyncResult<List<Integer>>> handler) {
+        updatePipelineWithParams(connection, arguments).onComplete(handler);
+        return this;
+    }
+
+    /**
+     * 按顺序流水线执行多个sql，遇到第一个失败即停止，相邻的相同sql合并为一次批处理。
+     * 不负责开启事务，需要事务时由调用方控制。
+     *
+     * @param connection 数据库连接
+     * @param arguments  参数 -> [{sql:'update user set name=? where id=?', param:['张三', 1]}, ...]
+     * @return Future<List < Integer>> 每条sql的影响行数，批处理驱动未返回行数时为 -2(SUCCESS_NO_INFO)
+     */
+    default Future<List<Integer>> updatePipelineWithParams(SQLConnection connection, JsonArray arguments) {
+        // 执行前校验全部sql，避免前面的语句已执行后才失败
+        for (int i = 0; i < arguments.size(); i++) {
+            if (arguments.getJsonObject(i).getString("sql") == null) {
+                return Future.failedFuture(new IllegalArgumentException(String.format("arguments[%d].sql is null", i)));
+            }
+        }
+
+        List<Integer> counts = new ArrayList<>(arguments.size());
+        Future<Void> pipeline = Future.succeededFuture();
+        int start = 0;
+        while (start < arguments.size()) {
+            String sql = arguments.getJsonObject(start).getString("sql");
+            int end = start + 1;
+            while (end < arguments.size() && sql.equals(arguments.getJsonObject(end).getString("sql"))) {
+                end++;
+            }
+
+            if (end - start == 1) {
+                JsonArray param = arguments.getJsonObject(start).getJsonArray("param", new JsonArray());
+                pipeline = pipeline.compose(v -> updateWithParams(connection, sql, param).map(r -> {
+                    counts.add(r.getUpdated());
+                    return null;
+                }));
+            } else {
+                List<JsonArray> params = new ArrayList<>(end - start);
+                for (int i = start; i < end; i++) {
+                    params.add(arguments.getJsonObject(i).getJsonArray("param", new JsonArray()));
+                }
+                pipeline = pipeline.compose(v -> batchWithParams(connection, sql, params).map(r -> {
+                    counts.addAll(r);
+                    return null;
+                }));
+            }
+            start = end;
+        }
+        return pipeline.map(v -> counts);
+    }
 }
@@ -6,10 +6,15 @@ import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.sql.ResultSet;
 import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.SQLOptions;
+import io.vertx.ext.sql.SQLRowStream;
 import io.vertx.ext.sql.UpdateResult;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -28,19 +33,58 @@ public interface CurdRepository extends BaseRepository {
      * @param arguments  ['张三', 'abc']
      */
     default void generateWhere(JsonObject where, StringBuilder conditions, JsonArray arguments) {
+        generateConditions(where.fieldNames(), conditions);
+        generateArguments(where, arguments);
+    }
+
+    /**
+     * 根据字段名生成where条件。
+     *
+     * @param keys       [name, uuid]
+     * @param conditions "name=? AND uuid=?"
+     */
+    default void generateConditions(Collection<String> keys, StringBuilder conditions) {
         int i = 0;
-        String key;
-        for (Iterator<String> it = where.fieldNames().iterator(); it.hasNext(); ) {
+        for (Iterator<String> it = keys.iterator(); it.hasNext(); ) {
             if (i != 0) {
                 conditions.append(" AND ");
             }
             i++;
-            key = it.next();
-            conditions.append(key).append("=?");
+            conditions.append(it.next()).append("=?");
+        }
+    }
+
+    /**
+     * 根据jsonobject 生成where参数。
+     *
+     * @param where     {name='张三', uuid='abc'}
+     * @param arguments ['张三', 'abc']
+     */
+    default void generateArguments(JsonObject where, JsonArray arguments) {
+        for (String key : where.fieldNames()) {
             arguments.add(where.getValue(key));
         }
     }
 
+    /**
+     * sql语句缓存统计信息。
+     *
+     * @return {size, maxSize, hits, misses, evictions}
+     */
+    JsonObject sqlCacheStats();
+
+    /**
+     * 按键加载单条记录，同一事件循环轮次(或load_batch_window毫秒)内的调用合并为一条in查询。
+     * 适合GraphQL resolver等逐条按主键查询的场景，把N+1次查询合并为一次。
+     * select id, name from user where id in (?, ?, ?, ?)
+     *
+     * @param key     键列名 -> id
+     * @param value   键值 -> 1
+     * @param columns 查询列 -> [id, name]，为空时查询全部列
+     * @return Future<JsonObject> | 如果记录不存在返回 null
+     */
+    Future<JsonObject> load(String key, Object value, JsonArray columns);
+
     /**
      * 分页计算.
      *
@@ -57,6 +101,8 @@ public interface CurdRepository extends BaseRepository {
     /**
      * 根据参数查询单条记录【没有记录回调结果为null】。
      * select * from user where name='张三' and status=1
+     * 以fetchSize=1流式读取，取到第一行后立即关闭结果集，不读取其余匹配行。
+     * 语句可以加limit时优先使用 findOne/findOneOrder。
      *
      * @param connection 数据库连接
      * @param sql        sql语句 -> select * from user where name =? and status=?
@@ -65,18 +111,38 @@ public interface CurdRepository extends BaseRepository {
      * @return CurdRepository
      */
     default CurdRepository queryOneWithParams(SQLConnection connection, String sql, JsonArray arguments, Handler<AsyncResult<JsonObject>> handler) {
-        connection.queryWithParams(sql, arguments, r -> {
-            if (r.succeeded()) {
-                List<JsonObject> resList = r.result().getRows();
-                if (resList == null || resList.isEmpty()) {
-                    handler.handle(Future.succeededFuture(null));
-                } else {
-                    handler.handle(Future.succeededFuture(resList.get(0)));
-                }
-            } else {
+        connection.setOptions(new SQLOptions().setFetchSize(1));
+        connection.queryStreamWithParams(sql, arguments, r -> {
+            connection.setOptions(null);
+            if (r.failed()) {
                 handler.handle(Future.failedFuture(r.cause()));
+                return;
             }
-            connection.close();
+            SQLRowStream stream = r.result();
+            boolean[] done = new boolean[1];
+            stream.exceptionHandler(t -> {
+                if (!done[0]) {
+                    done[0] = true;
+                    handler.handle(Future.failedFuture(t));
+                }
+            }).endHandler(v -> {
+                if (!done[0]) {
+                    done[0] = true;
+                    handler.handle(Future.succeededFuture(null));
+                }
+            }).handler(row -> {
+                if (done[0]) {
+                    return;
+                }
+                done[0] = true;
+                List<String> columns = stream.columns();
+                JsonObject json = new JsonObject();
+                for (int i = 0; i < columns.size(); i++) {
+                    json.put(columns.get(i), row.getValue(i));
+                }
+                // 结果集关闭后再回调，调用方可以立即归还连接
+                stream.close(c -> handler.handle(Future.succeededFuture(json)));
+            });
         });
 
         return this;
@@ -110,8 +176,13 @@ public interface CurdRepository extends BaseRepository {
      * @return CurdRepository
      */
     default CurdRepository queryPageWithParams(SQLConnection connection, String sql, JsonArray arguments, int page, int limit, Handler<AsyncResult<ResultSet>> handler) {
-        arguments.add(calcPage(page, limit)).add(limit);
-        connection.queryWithParams(sql, arguments, r -> {
+        // 复制参数，避免修改调用方的arguments
+        JsonArray pageArguments = new JsonArray(new ArrayList<>(arguments == null ? 2 : arguments.size() + 2));
+        if (arguments != null) {
+            pageArguments.addAll(arguments);
+        }
+        pageArguments.add(calcPage(page, limit)).add(limit);
+        connection.queryWithParams(sql, pageArguments, r -> {
             if (r.succeeded()) {
                 handler.handle(Future.succeededFuture(r.result()));
             } else {
@@ -204,6 +275,148 @@ public interface CurdRepository extends BaseRepository {
         return promise.future();
     }
 
+    /**
+     * 新增并返回指定列，方言支持时一条语句完成(returning/output/final table)，否则使用驱动返回的自增主键。
+     * insert into user(name,uuid) values('张三', 'abc') returning id, created_at
+     *
+     * @param connection 数据库连接
+     * @param values     参数 -> {name='张三'，uuid='abc'}
+     * @param columns    返回列 -> [id, created_at]，不支持returning时第一列为自增主键，其余列取自values
+     * @param handler    回调函数 -> {id=1, created_at='2020-01-01 00:00:00'}
+     * @return CurdRepository
+     */
+    CurdRepository createReturning(SQLConnection connection, JsonObject values, JsonArray columns, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * 新增并返回指定列。
+     * insert into user(name,uuid) values('张三', 'abc') returning id
+     *
+     * @param connection 数据库连接
+     * @param values     参数 -> {name='张三'，uuid='abc'}
+     * @param columns    返回列 -> [id]
+     * @return Future<JsonObject>
+     */
+    default Future<JsonObject> createReturning(SQLConnection connection, JsonObject values, JsonArray columns) {
+        Promise<JsonObject> promise = Promise.promise();
+        createReturning(connection, values, columns, promise);
+        return promise.future();
+    }
+
+    /**
+     * 批量新增，按列集合分组，每组按chunkSize拆分为多行values语句。
+     * insert into user(name,uuid) values('张三', 'abc'), ('李四', 'def')
+     *
+     * @param connection 数据库连接
+     * @param rows       参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @param chunkSize  每条语句最多插入行数 -> 500
+     * @param handler    回调函数 -> 新增总行数
+     * @return CurdRepository
+     */
+    CurdRepository createAll(SQLConnection connection, List<JsonObject> rows, int chunkSize, Handler<AsyncResult<Integer>> handler);
+
+    /**
+     * 批量新增，按列集合分组，每组按chunkSize拆分为多行values语句。
+     * insert into user(name,uuid) values('张三', 'abc'), ('李四', 'def')
+     *
+     * @param connection 数据库连接
+     * @param rows       参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @param chunkSize  每条语句最多插入行数 -> 500
+     * @return Future<Integer> 新增总行数
+     */
+    default Future<Integer> createAll(SQLConnection connection, List<JsonObject> rows, int chunkSize) {
+        Promise<Integer> promise = Promise.promise();
+        createAll(connection, rows, chunkSize, promise);
+        return promise.future();
+    }
+
+    /**
+     * 新增或按冲突列更新，一条语句完成，语法由upsert_syntax决定。
+     * insert into user(id, name) values(1, '张三') on duplicate key update name = values(name)
+     *
+     * @param connection   数据库连接
+     * @param values       参数 -> {id=1, name='张三'}
+     * @param conflictKeys 冲突列 -> [id]，需包含在values中
+     * @param handler      回调函数
+     * @return CurdRepository
+     */
+    CurdRepository upsert(SQLConnection connection, JsonObject values, JsonArray conflictKeys, Handler<AsyncResult<UpdateResult>> handler);
+
+    /**
+     * 新增或按冲突列更新。
+     * insert into user(id, name) values(1, '张三') on duplicate key update name = values(name)
+     *
+     * @param connection   数据库连接
+     * @param values       参数 -> {id=1, name='张三'}
+     * @param conflictKeys 冲突列 -> [id]
+     * @return Future<UpdateResult>
+     */
+    default Future<UpdateResult> upsert(SQLConnection connection, JsonObject values, JsonArray conflictKeys) {
+        Promise<UpdateResult> promise = Promise.promise();
+        upsert(connection, values, conflictKeys, promise);
+        return promise.future();
+    }
+
+    /**
+     * 批量新增或更新，按原有顺序切分为列集合相同的连续段，每段按chunkSize拆分为多行语句。
+     * 段内冲突列值相同的行只保留最后一行。
+     * insert into user(id, name) values(1, '张三'), (2, '李四') on duplicate key update name = values(name)
+     *
+     * @param connection   数据库连接
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @param chunkSize    每条语句最多行数 -> 500
+     * @param handler      回调函数 -> 驱动返回的影响行数之和
+     * @return CurdRepository
+     */
+    CurdRepository upsertAll(SQLConnection connection, List<JsonObject> rows, JsonArray conflictKeys, int chunkSize, Handler<AsyncResult<Integer>> handler);
+
+    /**
+     * 批量新增或更新，按原有顺序切分为列集合相同的连续段，每段按chunkSize拆分为多行语句。
+     * 段内冲突列值相同的行只保留最后一行。
+     * insert into user(id, name) values(1, '张三'), (2, '李四') on duplicate key update name = values(name)
+     *
+     * @param connection   数据库连接
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @param chunkSize    每条语句最多行数 -> 500
+     * @return Future<Integer> 驱动返回的影响行数之和
+     */
+    default Future<Integer> upsertAll(SQLConnection connection, List<JsonObject> rows, JsonArray conflictKeys, int chunkSize) {
+        Promise<Integer> promise = Promise.promise();
+        upsertAll(connection, rows, conflictKeys, chunkSize, promise);
+        return promise.future();
+    }
+
+    /**
+     * 流式批量导入，行按batchSize攒成jdbc批处理执行，批执行期间暂停数据源，每commitEvery批提交一次。
+     * 导入期间关闭自动提交，结束后恢复；某批失败时回滚未提交的批并停止，已提交的批保留。
+     * insert into user(name, uuid) values(?, ?) [batch]
+     *
+     * @param connection  数据库连接
+     * @param rows        数据源 -> 按行解析的文件、消息流，列名即表的列名
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10，小于等于0时全部写入后提交一次
+     * @param progress    每批完成后回调 -> {batch, batchRows, rows, committed, millis, rowsPerSecond[, error]}，可为null
+     * @param handler     回调函数 -> {batches, rows, committed, millis, rowsPerSecond}
+     * @return CurdRepository
+     */
+    CurdRepository importStream(SQLConnection connection, ReadStream<JsonObject> rows, int batchSize, int commitEvery, Handler<JsonObject> progress, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * 流式批量导入。
+     *
+     * @param connection  数据库连接
+     * @param rows        数据源
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10
+     * @return Future<JsonObject> -> {batches, rows, committed, millis, rowsPerSecond}
+     */
+    default Future<JsonObject> importStream(SQLConnection connection, ReadStream<JsonObject> rows, int batchSize, int commitEvery) {
+        Promise<JsonObject> promise = Promise.promise();
+        importStream(connection, rows, batchSize, commitEvery, null, promise);
+        return promise.future();
+    }
+
     /**
      * 修改。
      * update user set name='张三', sex ='1' where id =1 and uuid='abc'
@@ -608,6 +821,75 @@ public interface CurdRepository extends BaseRepository {
         return promise.future();
     }
 
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where (name='张三') AND id > 100 order by id limit 11
+     * orderKey必须唯一且非空，多查询一条用于判断是否还有下一页。
+     *
+     * @param connection     数据库连接
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param lastKeyValue   上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @param handler        回调函数
+     * @return CurdRepository
+     */
+    CurdRepository findAfter(SQLConnection connection, String where, JsonArray whereArguments, String orderKey, Object lastKeyValue, int limit, JsonArray columns, Handler<AsyncResult<KeysetPage>> handler);
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where (name='张三') AND id > 100 order by id limit 11
+     *
+     * @param connection     数据库连接
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param lastKeyValue   上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    default Future<KeysetPage> findAfter(SQLConnection connection, String where, JsonArray whereArguments, String orderKey, Object lastKeyValue, int limit, JsonArray columns) {
+        Promise<KeysetPage> promise = Promise.promise();
+        findAfter(connection, where, whereArguments, orderKey, lastKeyValue, limit, columns, promise);
+        return promise.future();
+    }
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where name=? AND id > ? order by id limit ?
+     *
+     * @param connection   数据库连接
+     * @param where        where -> {name='张三'}
+     * @param orderKey     排序键 -> id
+     * @param lastKeyValue 上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit        limit -> 10
+     * @param columns      columns -> id, name ,uuid
+     * @param handler      回调函数
+     * @return CurdRepository
+     */
+    CurdRepository findAfter(SQLConnection connection, JsonObject where, String orderKey, Object lastKeyValue, int limit, JsonArray columns, Handler<AsyncResult<KeysetPage>> handler);
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where name=? AND id > ? order by id limit ?
+     *
+     * @param connection   数据库连接
+     * @param where        where -> {name='张三'}
+     * @param orderKey     排序键 -> id
+     * @param lastKeyValue 上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit        limit -> 10
+     * @param columns      columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    default Future<KeysetPage> findAfter(SQLConnection connection, JsonObject where, String orderKey, Object lastKeyValue, int limit, JsonArray columns) {
+        Promise<KeysetPage> promise = Promise.promise();
+        findAfter(connection, where, orderKey, lastKeyValue, limit, columns, promise);
+        return promise.future();
+    }
+
     /**
      * 根据条件查询数据总数。
      * select count(1) user where name='张三' and uuid='abc'
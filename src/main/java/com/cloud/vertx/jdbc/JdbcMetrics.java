@@ -0,0 +1,37 @@
+package com.cloud.vertx.jdbc;
+
+/**
+ * 指标收集接口，默认不记录。
+ * 实现类可对接Micrometer、Dropwizard等指标库，或直接使用 {@link com.cloud.vertx.jdbc.impl.StatsJdbcMetrics}。
+ * 回调在执行线程(event loop)上调用，实现需线程安全且不能阻塞。
+ *
+ * @author zhoudingyun
+ */
+public interface JdbcMetrics {
+    /**
+     * 不记录任何指标。
+     */
+    JdbcMetrics NOOP = new JdbcMetrics() {
+    };
+
+    /**
+     * 获取连接完成。
+     *
+     * @param nanos     等待时间(纳秒)
+     * @param succeeded 是否成功
+     */
+    default void connectionAcquired(long nanos, boolean succeeded) {
+    }
+
+    /**
+     * 语句执行完成。
+     *
+     * @param shape       归一化后的语句，字面量替换为?，in列表和多行values合并 -> select * from user where id in (?)
+     * @param nanos       执行时间(纳秒)
+     * @param rowsRead    读取行数
+     * @param rowsWritten 影响行数
+     * @param failed      是否失败
+     */
+    default void statementExecuted(String shape, long nanos, int rowsRead, int rowsWritten, boolean failed) {
+    }
+}
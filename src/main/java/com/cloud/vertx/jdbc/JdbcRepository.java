@@ -1,14 +1,20 @@
 package com.cloud.vertx.jdbc;
 
+import com.cloud.vertx.jdbc.enums.ExportFormat;
 import com.cloud.vertx.jdbc.impl.JdbcRepositoryImpl;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.ext.sql.SQLRowStream;
 import io.vertx.ext.sql.UpdateResult;
 
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * JDBC操作统一接口。
@@ -17,6 +23,27 @@ import java.util.List;
  */
 public interface JdbcRepository extends CurdRepository {
 
+    /**
+     * 主键实体缓存统计信息，未开启entity_cache时返回空对象。
+     *
+     * @return {size, maxSize, hits, misses, hitRatio, evictions, expirations}
+     */
+    JsonObject entityCacheStats();
+
+    /**
+     * 查询结果缓存统计信息，未开启result_cache时返回空对象。
+     *
+     * @return {size, bytes, maxBytes, hits, misses, hitRatio, evictions, invalidations}
+     */
+    JsonObject resultCacheStats();
+
+    /**
+     * 相同查询合并统计信息，未开启single_flight时返回空对象。
+     *
+     * @return {inFlight, executed, shared}
+     */
+    JsonObject singleFlightStats();
+
     /**
      * 执行 ddl语句。
      *
@@ -35,7 +62,7 @@ public interface JdbcRepository extends CurdRepository {
     Future<List<JsonObject>> query(String sql);
 
     /**
-     * 查询数据流。
+     * 查询数据流，流结束、出错或关闭后自动归还连接。
      * select * from user where id=1
      *
      * @param sql sql语句 -> select * from user where id=1
@@ -54,7 +81,49 @@ public interface JdbcRepository extends CurdRepository {
     Future<List<JsonObject>> queryWithParams(String sql, JsonArray arguments);
 
     /**
-     * 根据参数查询数据流。
+     * 根据参数查询多条记录，按列下标映射为对象，不生成中间JsonObject。
+     * select id, name from user where status=1
+     *
+     * @param sql       sql语句 -> select id, name from user where status=?
+     * @param arguments 参数 -> [1]
+     * @param mapper    行映射函数 -> row -> new User(row.getLong(0), row.getString(1))
+     * @return Future<List < T>>
+     */
+    <T> Future<List<T>> query(String sql, JsonArray arguments, RowMapper<T> mapper);
+
+    /**
+     * 根据参数查询多条记录，按列名映射为JavaBean，列名忽略大小写和下划线匹配属性。
+     * select id, user_name from user where status=1
+     *
+     * @param sql       sql语句 -> select id, user_name from user where status=?
+     * @param arguments 参数 -> [1]
+     * @param type      结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    <T> Future<List<T>> query(String sql, JsonArray arguments, Class<T> type);
+
+    /**
+     * 根据参数查询多条记录，结果按(sql, 参数)缓存，语句涉及的表经本repository写入后失效。
+     * 未配置result_cache时与 {@link #queryWithParams(String, JsonArray)} 相同。
+     *
+     * @param sql       sql语句 -> select status, count(1) c from user where dept=? group by status
+     * @param arguments 参数 -> [1]
+     * @return Future<List < JsonObject>>
+     */
+    Future<List<JsonObject>> queryCached(String sql, JsonArray arguments);
+
+    /**
+     * 根据参数查询多条记录并逐行映射，结果按(sql, 参数)缓存。
+     *
+     * @param sql       sql语句
+     * @param arguments 参数
+     * @param mapper    行映射函数，传入的行是缓存的副本
+     * @return Future<List < T>>
+     */
+    <T> Future<List<T>> queryCached(String sql, JsonArray arguments, RowMapper<T> mapper);
+
+    /**
+     * 根据参数查询数据流，流结束、出错或关闭后自动归还连接。
      * select * from user where name='张三'
      *
      * @param sql       sql语句 -> select * from user where name =?
@@ -63,6 +132,31 @@ public interface JdbcRepository extends CurdRepository {
      */
     Future<SQLRowStream> queryStreamWithParams(String sql, JsonArray arguments);
 
+    /**
+     * 流式导出查询结果，行直接编码为CSV/NDJSON写入target，写队列满时暂停读取。
+     * 导出期间关闭自动提交，使PostgreSQL使用游标；MySQL需在url中开启useCursorFetch=true，否则驱动把整个结果集读入内存。
+     * 导出完成后不结束target，由调用方关闭文件或结束响应。
+     *
+     * @param sql       sql语句 -> select * from user where status =?
+     * @param arguments 参数 -> [1]
+     * @param format    导出格式 -> Csv | Ndjson
+     * @param target    目标流 -> AsyncFile | HttpServerResponse
+     * @return Future<JsonObject> -> {rows, bytes, millis, rowsPerSecond}
+     */
+    Future<JsonObject> export(String sql, JsonArray arguments, ExportFormat format, WriteStream<Buffer> target);
+
+    /**
+     * 流式导出查询结果，导出过程中最多每秒回调一次进度。
+     *
+     * @param sql       sql语句 -> select * from user where status =?
+     * @param arguments 参数 -> [1]
+     * @param format    导出格式 -> Csv | Ndjson
+     * @param target    目标流 -> AsyncFile | HttpServerResponse
+     * @param progress  进度回调 -> {rows, bytes, millis, rowsPerSecond}
+     * @return Future<JsonObject> -> {rows, bytes, millis, rowsPerSecond}
+     */
+    Future<JsonObject> export(String sql, JsonArray arguments, ExportFormat format, WriteStream<Buffer> target, Handler<JsonObject> progress);
+
     /**
      * 查询单条记录。
      * select * from user where id=1
@@ -187,6 +281,88 @@ public interface JdbcRepository extends CurdRepository {
      */
     Future<UpdateResult> create(JsonObject values);
 
+    /**
+     * 新增并返回指定列，方言支持时一条语句完成，否则使用驱动返回的自增主键。
+     * insert into user(name,uuid) values('张三', 'abc') returning id, created_at
+     *
+     * @param values  参数 -> {name='张三'，uuid='abc'}
+     * @param columns 返回列 -> [id, created_at]
+     * @return Future<JsonObject> -> {id=1, created_at='2020-01-01 00:00:00'}
+     */
+    Future<JsonObject> createReturning(JsonObject values, JsonArray columns);
+
+    /**
+     * 在事务内批量新增，每条语句最多插入 insert_chunk_size 行。
+     * insert into user(name,uuid) values('张三', 'abc'), ('李四', 'def')
+     *
+     * @param rows 参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @return Future<Integer> 新增总行数
+     */
+    Future<Integer> createAll(List<JsonObject> rows);
+
+    /**
+     * 在事务内批量新增。
+     * insert into user(name,uuid) values('张三', 'abc'), ('李四', 'def')
+     *
+     * @param rows      参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @param chunkSize 每条语句最多插入行数 -> 500
+     * @return Future<Integer> 新增总行数
+     */
+    Future<Integer> createAll(List<JsonObject> rows, int chunkSize);
+
+    /**
+     * 新增或按冲突列更新，一条语句完成，语法由upsert_syntax决定。
+     * insert into user(id, name) values(1, '张三') on duplicate key update name = values(name)
+     *
+     * @param values       参数 -> {id=1, name='张三'}
+     * @param conflictKeys 冲突列 -> [id]，需包含在values中
+     * @return Future<UpdateResult>
+     */
+    Future<UpdateResult> upsert(JsonObject values, JsonArray conflictKeys);
+
+    /**
+     * 在事务内批量新增或更新，每条语句最多 insert_chunk_size 行。
+     * insert into user(id, name) values(1, '张三'), (2, '李四') on duplicate key update name = values(name)
+     *
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @return Future<Integer> 驱动返回的影响行数之和
+     */
+    Future<Integer> upsertAll(List<JsonObject> rows, JsonArray conflictKeys);
+
+    /**
+     * 在事务内批量新增或更新。
+     * insert into user(id, name) values(1, '张三'), (2, '李四') on duplicate key update name = values(name)
+     *
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @param chunkSize    每条语句最多行数 -> 500
+     * @return Future<Integer> 驱动返回的影响行数之和
+     */
+    Future<Integer> upsertAll(List<JsonObject> rows, JsonArray conflictKeys, int chunkSize);
+
+    /**
+     * 流式批量导入，行按batchSize攒成jdbc批处理执行，批执行期间暂停数据源，每commitEvery批提交一次。
+     * 某批失败时回滚未提交的批并停止，已提交的批保留。
+     *
+     * @param rows        数据源 -> 按行解析的文件、消息流，列名即表的列名
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10，小于等于0时全部写入后提交一次
+     * @return Future<JsonObject> -> {batches, rows, committed, millis, rowsPerSecond}
+     */
+    Future<JsonObject> importStream(ReadStream<JsonObject> rows, int batchSize, int commitEvery);
+
+    /**
+     * 流式批量导入，每批完成后回调进度。
+     *
+     * @param rows        数据源
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10
+     * @param progress    进度回调 -> {batch, batchRows, rows, committed, millis, rowsPerSecond[, error]}
+     * @return Future<JsonObject> -> {batches, rows, committed, millis, rowsPerSecond}
+     */
+    Future<JsonObject> importStream(ReadStream<JsonObject> rows, int batchSize, int commitEvery, Handler<JsonObject> progress);
+
     /**
      * 修改。
      * update user set name='张三', sex ='1' where id =1 and uuid='abc'
@@ -292,6 +468,40 @@ public interface JdbcRepository extends CurdRepository {
      */
     Future<List<JsonObject>> find(JsonObject where, JsonArray columns);
 
+    /**
+     * 根据条件查询数据，按列名映射为JavaBean。
+     * select id, name ,uuid from user where name='张三' and uuid='abc'
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param columns        查询列columns -> id, name ,uuid
+     * @param type           结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    <T> Future<List<T>> find(String where, JsonArray whereArguments, JsonArray columns, Class<T> type);
+
+    /**
+     * 根据条件查询数据，按列名映射为JavaBean。
+     * select id, name ,uuid from user where name='张三' and uuid='abc'
+     *
+     * @param where   where -> {name='张三', uuid='abc'}
+     * @param columns 查询列columns -> id, name ,uuid
+     * @param type    结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    <T> Future<List<T>> find(JsonObject where, JsonArray columns, Class<T> type);
+
+    /**
+     * 查询单条数据，按列名映射为JavaBean。
+     * select id, name ,uuid from user where id=1 and uuid='abc'
+     *
+     * @param where   where -> {id=1, uuid='abc'}
+     * @param columns columns -> id, name ,uuid
+     * @param type    结果类型 -> User.class
+     * @return Future<T> | 如果记录不存在返回 null
+     */
+    <T> Future<T> findOne(JsonObject where, JsonArray columns, Class<T> type);
+
     /**
      * 根据条件查询排序数据。
      * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
@@ -315,6 +525,58 @@ public interface JdbcRepository extends CurdRepository {
      */
     Future<List<JsonObject>> findOrder(JsonObject where, String orderBy, JsonArray columns);
 
+    /**
+     * 根据条件流式查询数据，流结束、出错或关闭后自动归还连接。
+     * fetchSize大于0时查询期间关闭自动提交，PostgreSQL按游标分批读取，MySQL需在url中开启useCursorFetch=true。
+     * select id, name ,uuid from user where name='张三' and uuid='abc'
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param columns        查询列columns -> id, name ,uuid
+     * @param fetchSize      每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    Future<JsonRowStream> findStream(String where, JsonArray whereArguments, JsonArray columns, int fetchSize);
+
+    /**
+     * 根据条件流式查询数据，流结束、出错或关闭后自动归还连接。
+     * fetchSize大于0时查询期间关闭自动提交，PostgreSQL按游标分批读取，MySQL需在url中开启useCursorFetch=true。
+     * select id, name ,uuid from user where name='张三' and uuid='abc'
+     *
+     * @param where     where -> {name='张三', uuid='abc'}
+     * @param columns   查询列columns -> id, name ,uuid
+     * @param fetchSize 每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    Future<JsonRowStream> findStream(JsonObject where, JsonArray columns, int fetchSize);
+
+    /**
+     * 根据条件流式查询排序数据，流结束、出错或关闭后自动归还连接。
+     * fetchSize大于0时查询期间关闭自动提交，PostgreSQL按游标分批读取，MySQL需在url中开启useCursorFetch=true。
+     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param orderBy        orderBy -> name desc, uuid asc
+     * @param columns        columns -> id, name ,uuid
+     * @param fetchSize      每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    Future<JsonRowStream> findOrderStream(String where, JsonArray whereArguments, String orderBy, JsonArray columns, int fetchSize);
+
+    /**
+     * 根据条件流式查询排序数据，流结束、出错或关闭后自动归还连接。
+     * fetchSize大于0时查询期间关闭自动提交，PostgreSQL按游标分批读取，MySQL需在url中开启useCursorFetch=true。
+     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     *
+     * @param where     where -> {name='张三', uuid='abc'}
+     * @param orderBy   orderBy -> name desc, uuid asc
+     * @param columns   columns -> id, name ,uuid
+     * @param fetchSize 每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    Future<JsonRowStream> findOrderStream(JsonObject where, String orderBy, JsonArray columns, int fetchSize);
+
     /**
      * 根据条件查询分页数据。
      * select id, name ,uuid from user where name='张三' and uuid='abc' limit 0, 10
@@ -340,6 +602,114 @@ public interface JdbcRepository extends CurdRepository {
      */
     Future<List<JsonObject>> findPage(JsonObject where, int page, int limit, JsonArray columns);
 
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据，深分页耗时不随页号增长。
+     * select id, name ,uuid from user where (name='张三') AND id > 100 order by id limit 11
+     * orderKey必须唯一且非空。
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param lastKeyValue   上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    Future<KeysetPage> findAfter(String where, JsonArray whereArguments, String orderKey, Object lastKeyValue, int limit, JsonArray columns);
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据，深分页耗时不随页号增长。
+     * select id, name ,uuid from user where name='张三' AND id > 100 order by id limit 11
+     * orderKey必须唯一且非空。
+     *
+     * @param where        where -> {name='张三'}
+     * @param orderKey     排序键 -> id
+     * @param lastKeyValue 上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit        limit -> 10
+     * @param columns      columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    Future<KeysetPage> findAfter(JsonObject where, String orderKey, Object lastKeyValue, int limit, JsonArray columns);
+
+    /**
+     * 根据上一页返回的游标查询下一页。
+     * 游标来自客户端，排序键由调用方指定，游标中的排序键与orderKey不一致时失败。
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param cursor         游标 -> {@link KeysetPage#getCursor()}
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    Future<KeysetPage> findNext(String where, JsonArray whereArguments, String orderKey, String cursor, int limit, JsonArray columns);
+
+    /**
+     * 根据上一页返回的游标查询下一页。
+     * 游标来自客户端，排序键由调用方指定，游标中的排序键与orderKey不一致时失败。
+     *
+     * @param where    where -> {name='张三'}
+     * @param orderKey 排序键 -> id
+     * @param cursor   游标 -> {@link KeysetPage#getCursor()}
+     * @param limit    limit -> 10
+     * @param columns  columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    Future<KeysetPage> findNext(JsonObject where, String orderKey, String cursor, int limit, JsonArray columns);
+
+    /**
+     * 分页查询数据和总数，两条语句在两个连接上并发执行。
+     * 配置count_cache_ttl(毫秒)大于0时，总数按(where, 参数)缓存，有效期内可能与实际数据不一致。
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param page           page -> 1
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<PageResult>
+     */
+    Future<PageResult> findPageWithTotal(String where, JsonArray whereArguments, int page, int limit, JsonArray columns);
+
+    /**
+     * 分页查询数据和总数。
+     * skipShortCount为true时先查询分页数据，数据不足一页时直接计算总数，不再执行count语句。
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param page           page -> 1
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @param skipShortCount 数据不足一页时跳过count
+     * @return Future<PageResult>
+     */
+    Future<PageResult> findPageWithTotal(String where, JsonArray whereArguments, int page, int limit, JsonArray columns, boolean skipShortCount);
+
+    /**
+     * 分页查询数据和总数，两条语句在两个连接上并发执行。
+     * 配置count_cache_ttl(毫秒)大于0时，总数按(where, 参数)缓存，有效期内可能与实际数据不一致。
+     *
+     * @param where   where -> {name='张三'}
+     * @param page    page -> 1
+     * @param limit   limit -> 10
+     * @param columns columns -> id, name ,uuid
+     * @return Future<PageResult>
+     */
+    Future<PageResult> findPageWithTotal(JsonObject where, int page, int limit, JsonArray columns);
+
+    /**
+     * 分页查询数据和总数。
+     * skipShortCount为true时先查询分页数据，数据不足一页时直接计算总数，不再执行count语句。
+     *
+     * @param where          where -> {name='张三'}
+     * @param page           page -> 1
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @param skipShortCount 数据不足一页时跳过count
+     * @return Future<PageResult>
+     */
+    Future<PageResult> findPageWithTotal(JsonObject where, int page, int limit, JsonArray columns, boolean skipShortCount);
+
     /**
      * 根据条件查询数据总数。
      * select count(1) user where name='张三' and uuid='abc'
@@ -360,10 +730,47 @@ public interface JdbcRepository extends CurdRepository {
     Future<Integer> count(JsonObject where);
 
     /**
-     * 执行多个sql带事务。
+     * 执行多个sql带事务，按 {@link #updatePipelineWithParams(JsonArray)} 顺序执行。
      *
      * @param arguments 参数 -> JsonObject.get("sql") JsonObject.get("param")[JsonArray]
-     * @return Future<UpdateResult>
+     * @return Future<UpdateResult> 影响总行数
      */
     Future<UpdateResult> updateMultWithParams(JsonArray arguments);
+
+    /**
+     * 在事务内按顺序流水线执行多个sql，遇到第一个失败即停止并回滚，相邻的相同sql合并为一次批处理。
+     *
+     * @param arguments 参数 -> [{sql:'update user set name=? where id=?', param:['张三', 1]}, ...]
+     * @return Future<List < Integer>> 每条sql的影响行数
+     */
+    Future<List<Integer>> updatePipelineWithParams(JsonArray arguments);
+
+    /**
+     * 开启会话，会话内所有操作共用一个连接，使用完毕后必须调用 {@link JdbcSession#close()}。
+     *
+     * @return Future<JdbcSession>
+     */
+    Future<JdbcSession> session();
+
+    /**
+     * 在会话内执行多个操作，function返回的Future完成后自动关闭会话。
+     * repository.withSession(s -> s.findOne(where, columns).compose(one -> s.count(where)))
+     *
+     * @param function 会话内操作
+     * @param <T>      结果类型
+     * @return Future<T>
+     */
+    <T> Future<T> withSession(Function<JdbcSession, Future<T>> function);
+
+    /**
+     * 在事务内执行多个操作：获取连接、开启事务、执行function，成功提交、失败回滚，最后归还连接。
+     * 因死锁或序列化冲突(SQLSTATE 40001/40P01，Oracle ORA-00060/ORA-08177)失败时按指数退避加随机抖动重新执行整个function，
+     * 最多重试transaction_retries次，function需可重复执行。
+     * repository.inTransaction(s -> s.update(sets, where).compose(r -> s.create(log)))
+     *
+     * @param function 事务内操作
+     * @param <T>      结果类型
+     * @return Future<T>
+     */
+    <T> Future<T> inTransaction(Function<JdbcSession, Future<T>> function);
 }
@@ -0,0 +1,43 @@
+package com.cloud.vertx.jdbc;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Set;
+
+/**
+ * repository注册表，同一数据源下所有表的repository共用一个连接池和sql缓存。
+ *
+ * @author zhoudingyun
+ */
+public interface JdbcRepositoryRegistry {
+
+    /**
+     * 获取表对应的repository，不存在时创建。
+     *
+     * @param tableName 表名
+     * @return JdbcRepository
+     */
+    JdbcRepository repository(String tableName);
+
+    /**
+     * 已创建repository的表名。
+     *
+     * @return Set<String>
+     */
+    Set<String> tableNames();
+
+    /**
+     * 按表统计的连接使用情况。
+     *
+     * @return {tableName: {acquired, failed, outstanding, maxOutstanding, avgWaitMillis}}
+     */
+    JsonObject poolUsage();
+
+    /**
+     * 关闭共用的连接池。
+     *
+     * @return Future<Void>
+     */
+    Future<Void> close();
+}
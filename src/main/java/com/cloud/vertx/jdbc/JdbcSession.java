@@ -0,0 +1,34 @@
+package com.cloud.vertx.jdbc;
+
+import io.vertx.core.Future;
+import io.vertx.ext.sql.SQLConnection;
+
+/**
+ * 绑定单个数据库连接的JDBC会话。
+ * 会话内所有操作共用同一连接，不再逐次从连接池获取和归还，使用完毕后必须调用 {@link #close()}。
+ *
+ * @author zhoudingyun
+ */
+public interface JdbcSession extends JdbcRepository {
+
+    /**
+     * 会话绑定的数据库连接。
+     *
+     * @return SQLConnection
+     */
+    SQLConnection connection();
+
+    /**
+     * 会话是否已关闭。
+     *
+     * @return boolean
+     */
+    boolean isClosed();
+
+    /**
+     * 关闭会话，将连接归还连接池，重复调用无副作用。
+     *
+     * @return Future<Void>
+     */
+    Future<Void> close();
+}
@@ -0,0 +1,54 @@
+package com.cloud.vertx.jdbc;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.List;
+
+/**
+ * 以JsonObject为行的查询结果流，支持pause/resume背压。
+ * 流结束、出错或调用 {@link #close()} 后自动归还数据库连接。
+ *
+ * @author zhoudingyun
+ */
+public interface JsonRowStream extends ReadStream<JsonObject> {
+
+    /**
+     * 结果集列名。
+     *
+     * @return List<String>
+     */
+    List<String> columns();
+
+    @Override
+    JsonRowStream exceptionHandler(Handler<Throwable> handler);
+
+    @Override
+    JsonRowStream handler(Handler<JsonObject> handler);
+
+    @Override
+    JsonRowStream pause();
+
+    @Override
+    JsonRowStream resume();
+
+    @Override
+    JsonRowStream fetch(long amount);
+
+    @Override
+    JsonRowStream endHandler(Handler<Void> endHandler);
+
+    /**
+     * 取消读取，关闭结果集并归还连接。
+     */
+    void close();
+
+    /**
+     * 取消读取，关闭结果集并归还连接。
+     *
+     * @param handler 回调函数
+     */
+    void close(Handler<AsyncResult<Void>> handler);
+}
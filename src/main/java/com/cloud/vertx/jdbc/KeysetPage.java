@@ -0,0 +1,74 @@
+package com.cloud.vertx.jdbc;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 键集分页结果。
+ * cursor为下一页的续查游标，没有更多数据时为null。
+ *
+ * @author zhoudingyun
+ */
+public class KeysetPage {
+    private final List<JsonObject> rows;
+    private final String cursor;
+
+    public KeysetPage(List<JsonObject> rows, String cursor) {
+        this.rows = rows;
+        this.cursor = cursor;
+    }
+
+    public List<JsonObject> getRows() {
+        return rows;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean hasMore() {
+        return cursor != null;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject().put("rows", rows).put("cursor", cursor);
+    }
+
+    /**
+     * 生成游标。
+     *
+     * @param key   排序键 -> id
+     * @param value 本页最后一行的排序键值 -> 100
+     * @return base64url编码的游标
+     */
+    public static String encodeCursor(String key, Object value) {
+        String json = new JsonObject().put("k", key).put("v", value).encode();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标。
+     *
+     * @param cursor 游标
+     * @return {k: 排序键, v: 排序键值}
+     */
+    public static JsonObject decodeCursor(String cursor) {
+        if (cursor == null) {
+            throw new IllegalArgumentException("cursor is null");
+        }
+        JsonObject json;
+        try {
+            json = new JsonObject(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException | DecodeException e) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor, e);
+        }
+        if (!(json.getValue("k") instanceof String) || !json.containsKey("v")) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor);
+        }
+        return json;
+    }
+}
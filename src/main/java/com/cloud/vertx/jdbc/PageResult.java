@@ -0,0 +1,58 @@
+package com.cloud.vertx.jdbc;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.List;
+
+/**
+ * 分页结果，包含当前页数据和总数。
+ *
+ * @author zhoudingyun
+ */
+public class PageResult {
+    private final List<JsonObject> rows;
+    private final int total;
+    private final int page;
+    private final int limit;
+
+    public PageResult(List<JsonObject> rows, int total, int page, int limit) {
+        this.rows = rows;
+        this.total = total;
+        this.page = page;
+        this.limit = limit;
+    }
+
+    public List<JsonObject> getRows() {
+        return rows;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 总页数。
+     *
+     * @return int
+     */
+    public int getPages() {
+        return limit <= 0 ? 0 : (total + limit - 1) / limit;
+    }
+
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("rows", rows)
+                .put("total", total)
+                .put("page", page)
+                .put("limit", limit)
+                .put("pages", getPages());
+    }
+}
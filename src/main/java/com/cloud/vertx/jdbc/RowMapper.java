@@ -0,0 +1,46 @@
+package com.cloud.vertx.jdbc;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.sql.ResultSet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 行映射函数，直接按列下标读取 {@link ResultSet#getResults()} 的行数据，不生成中间JsonObject。
+ * (row) -> new User(row.getLong(0), row.getString(1))
+ *
+ * @author zhoudingyun
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * 映射一行数据。
+     *
+     * @param row 行数据，顺序与查询列一致
+     * @return T
+     */
+    T map(JsonArray row);
+
+    /**
+     * 映射整个结果集。
+     *
+     * @param resultSet 结果集
+     * @param mapper    行映射函数
+     * @param <T>       结果类型
+     * @return List<T>
+     */
+    static <T> List<T> mapAll(ResultSet resultSet, RowMapper<T> mapper) {
+        List<JsonArray> results = resultSet.getResults();
+        if (results == null || results.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<T> list = new ArrayList<>(results.size());
+        for (JsonArray row : results) {
+            list.add(mapper.map(row));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,32 @@
+package com.cloud.vertx.jdbc.enums;
+
+/**
+ * 从库负载均衡策略。
+ *
+ * @author zhoudingyun
+ */
+public enum Balance {
+    /**
+     * 轮询。
+     */
+    RoundRobin,
+    /**
+     * 选择未归还连接最少的从库。
+     */
+    LeastOutstanding;
+
+    /**
+     * 解析配置值 round_robin / least_outstanding。
+     *
+     * @param value 配置值
+     * @return Balance
+     */
+    public static Balance of(String value) {
+        if (value == null || "round_robin".equalsIgnoreCase(value)) {
+            return RoundRobin;
+        } else if ("least_outstanding".equalsIgnoreCase(value)) {
+            return LeastOutstanding;
+        }
+        throw new IllegalArgumentException("unknown replica_balance: " + value);
+    }
+}
@@ -0,0 +1,32 @@
+package com.cloud.vertx.jdbc.enums;
+
+/**
+ * 导出文件格式。
+ *
+ * @author zhoudingyun
+ */
+public enum ExportFormat {
+    /**
+     * RFC 4180 CSV，首行为列名，null导出为空字段，行以\r\n结束。
+     */
+    Csv,
+    /**
+     * 每行一个JSON对象，以\n分隔。
+     */
+    Ndjson;
+
+    /**
+     * 解析配置值 csv / ndjson。
+     *
+     * @param value 配置值
+     * @return ExportFormat
+     */
+    public static ExportFormat of(String value) {
+        if (value == null || "csv".equalsIgnoreCase(value)) {
+            return Csv;
+        } else if ("ndjson".equalsIgnoreCase(value) || "jsonl".equalsIgnoreCase(value)) {
+            return Ndjson;
+        }
+        throw new IllegalArgumentException("unknown export format: " + value);
+    }
+}
@@ -6,5 +6,5 @@ package com.cloud.vertx.jdbc.enums;
  * @author zhoudingyun
  */
 public enum Mode {
-    Select, Insert, Update, Delete;
+    Select, Insert, Update, Delete, Upsert;
 }
@@ -0,0 +1,38 @@
+package com.cloud.vertx.jdbc.enums;
+
+/**
+ * upsert语句语法。
+ *
+ * @author zhoudingyun
+ */
+public enum UpsertSyntax {
+    /**
+     * insert ... on duplicate key update，MySQL/MariaDB，冲突列由表上的唯一索引决定。
+     */
+    OnDuplicateKey,
+    /**
+     * insert ... on conflict (...) do update，PostgreSQL/SQLite。
+     */
+    OnConflict,
+    /**
+     * merge into ... using (values ...)，H2/SQL Server/DB2/PostgreSQL 15+。
+     */
+    Merge;
+
+    /**
+     * 解析配置值 on_duplicate_key / on_conflict / merge。
+     *
+     * @param value 配置值
+     * @return UpsertSyntax
+     */
+    public static UpsertSyntax of(String value) {
+        if (value == null || "on_duplicate_key".equalsIgnoreCase(value)) {
+            return OnDuplicateKey;
+        } else if ("on_conflict".equalsIgnoreCase(value)) {
+            return OnConflict;
+        } else if ("merge".equalsIgnoreCase(value)) {
+            return Merge;
+        }
+        throw new IllegalArgumentException("unknown upsert_syntax: " + value);
+    }
+}
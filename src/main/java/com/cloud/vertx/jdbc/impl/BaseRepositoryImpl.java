@@ -1,11 +1,15 @@
 package com.cloud.vertx.jdbc.impl;
 
 import com.cloud.vertx.jdbc.BaseRepository;
+import com.cloud.vertx.jdbc.JdbcMetrics;
+import com.cloud.vertx.jdbc.util.PoolUsage;
 import io.vertx.core.*;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.sql.SQLConnection;
 
+import java.util.function.Function;
+
 /**
  * jdbc基础操作统一接口实现类。
  *
@@ -15,17 +19,198 @@ public class BaseRepositoryImpl implements BaseRepository {
     protected JDBCClient client;
     protected Vertx vertx;
     protected JsonObject config;
+    /**
+     * 主从路由，配置了replicas时创建，否则为null。
+     */
+    protected DataSourceRouter router;
+    /**
+     * 本repository的连接使用统计，共用连接池时按表区分。
+     */
+    protected PoolUsage usage = new PoolUsage();
+    protected JdbcMetrics metrics = JdbcMetrics.NOOP;
+    /**
+     * 慢查询日志，配置了slow_query_threshold时创建，否则为null。
+     */
+    protected SlowQueryLog slowQueryLog;
 
     /**
      * 构造方法。
      *
      * @param vertx  vertx
-     * @param config config
+     * @param config config，包含data_source_name时按名称共用连接池，包含statement_cache时见 {@link StatementCacheConfig}
      */
     public BaseRepositoryImpl(Vertx vertx, JsonObject config) {
-        client = JDBCClient.create(vertx, config);
+        config = StatementCacheConfig.apply(config);
+        String dataSourceName = config.getString("data_source_name");
+        client = dataSourceName == null ? JDBCClient.create(vertx, config) : JDBCClient.createShared(vertx, config, dataSourceName);
         this.vertx = vertx;
         this.config = config;
+        if (DataSourceRouter.hasReplicas(config)) {
+            this.router = new DataSourceRouter(vertx, client, config);
+        }
+        if (SlowQueryLog.enabled(config)) {
+            this.slowQueryLog = new SlowQueryLog(config, client::getConnection);
+        }
+    }
+
+    /**
+     * 构造方法，与other共用连接池。
+     *
+     * @param other 已创建的repository
+     */
+    protected BaseRepositoryImpl(BaseRepositoryImpl other) {
+        this.client = other.client;
+        this.vertx = other.vertx;
+        this.config = other.config;
+        this.router = other.router;
+        this.usage = other.usage;
+        this.metrics = other.metrics;
+        this.slowQueryLog = other.slowQueryLog;
+    }
+
+    /**
+     * 设置指标收集，之后获取的连接按语句记录耗时和行数。
+     *
+     * @param metrics 指标收集，null时不记录
+     * @return BaseRepositoryImpl
+     */
+    public BaseRepositoryImpl setMetrics(JdbcMetrics metrics) {
+        this.metrics = metrics == null ? JdbcMetrics.NOOP : metrics;
+        return this;
+    }
+
+    /**
+     * 获取执行单条操作所用的连接，使用完毕后调用 {@link #release(SQLConnection)} 归还。
+     * 配置了从库时始终使用主库。
+     *
+     * @param handler 回调函数
+     */
+    protected void acquire(Handler<AsyncResult<SQLConnection>> handler) {
+        if (router == null) {
+            client.getConnection(track(handler));
+        } else {
+            router.acquireWrite(track(handler));
+        }
+    }
+
+    /**
+     * 获取只读操作所用的连接，配置了从库时按负载均衡策略使用从库，
+     * 使用完毕后同样调用 {@link #release(SQLConnection)} 归还。
+     *
+     * @param handler 回调函数
+     */
+    protected void acquireRead(Handler<AsyncResult<SQLConnection>> handler) {
+        if (router == null) {
+            acquire(handler);
+        } else {
+            router.acquireRead(track(handler));
+        }
+    }
+
+    /**
+     * 记录连接使用，启用指标或慢查询日志时包装连接。
+     */
+    private Handler<AsyncResult<SQLConnection>> track(Handler<AsyncResult<SQLConnection>> handler) {
+        return instrument(usage.track(handler));
+    }
+
+    private Handler<AsyncResult<SQLConnection>> instrument(Handler<AsyncResult<SQLConnection>> handler) {
+        JdbcMetrics metrics = this.metrics;
+        SlowQueryLog slowQueryLog = this.slowQueryLog;
+        if (metrics == JdbcMetrics.NOOP && slowQueryLog == null) {
+            return handler;
+        }
+        long start = System.nanoTime();
+        return r -> {
+            long waitNanos = System.nanoTime() - start;
+            metrics.connectionAcquired(waitNanos, r.succeeded());
+            handler.handle(r.succeeded() ? Future.succeededFuture(new InstrumentedSQLConnection(r.result(), metrics, slowQueryLog, waitNanos)) : r);
+        };
+    }
+
+    /**
+     * 归还 {@link #acquire(Handler)} 获取的连接。
+     *
+     * @param connection 数据库连接
+     */
+    protected void release(SQLConnection connection) {
+        release(connection, null);
+    }
+
+    /**
+     * 归还 {@link #acquire(Handler)} 获取的连接。
+     *
+     * @param connection 数据库连接
+     * @param handler    关闭完成回调，可为null
+     */
+    protected void release(SQLConnection connection, Handler<AsyncResult<Void>> handler) {
+        usage.released();
+        connection = InstrumentedSQLConnection.unwrap(connection);
+        if (router == null) {
+            if (handler == null) {
+                connection.close();
+            } else {
+                connection.close(handler);
+            }
+        } else {
+            router.release(connection, handler);
+        }
+    }
+
+    /**
+     * 在事务内执行function，成功提交、失败回滚，结束后恢复自动提交。
+     *
+     * @param connection 数据库连接
+     * @param function   事务内操作
+     * @return Future<T>
+     */
+    protected <T> Future<T> transaction(SQLConnection connection, Function<SQLConnection, Future<T>> function) {
+        Promise<T> promise = Promise.promise();
+        connection.setAutoCommit(false, begin -> {
+            if (begin.failed()) {
+                promise.fail(begin.cause());
+                return;
+            }
+            Future<T> future;
+            try {
+                future = function.apply(connection);
+            } catch (Throwable t) {
+                future = Future.failedFuture(t);
+            }
+            future.onComplete(r -> {
+                if (r.succeeded()) {
+                    connection.commit(c -> {
+                        if (c.succeeded()) {
+                            restoreAutoCommit(connection, r, promise);
+                        } else {
+                            connection.rollback(rb -> restoreAutoCommit(connection, Future.failedFuture(c.cause()), promise));
+                        }
+                    });
+                } else {
+                    connection.rollback(rb -> {
+                        if (rb.failed()) {
+                            r.cause().addSuppressed(rb.cause());
+                        }
+                        restoreAutoCommit(connection, r, promise);
+                    });
+                }
+            });
+        });
+        return promise.future();
+    }
+
+    private <T> void restoreAutoCommit(SQLConnection connection, AsyncResult<T> result, Promise<T> promise) {
+        connection.setAutoCommit(true, r -> promise.handle(result));
+    }
+
+    /**
+     * 连接使用统计。
+     *
+     * @return {acquired, failed, outstanding, maxOutstanding, avgWaitMillis}
+     */
+    @Override
+    public JsonObject poolUsage() {
+        return usage.toJson();
     }
 
     /**
@@ -52,14 +237,7 @@ public class BaseRepositoryImpl implements BaseRepository {
     @Override
     public Future<SQLConnection> getConnection() {
         Promise<SQLConnection> promise = Promise.promise();
-        client.getConnection(conn -> {
-            if (conn.succeeded()) {
-                final SQLConnection connection = conn.result();
-                promise.complete(connection);
-            } else {
-                promise.fail(conn.cause());
-            }
-        });
+        client.getConnection(instrument(promise));
         return promise.future();
     }
 }
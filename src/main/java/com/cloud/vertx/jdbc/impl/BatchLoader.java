@@ -0,0 +1,196 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.util.ArrayListUtils;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.BiFunction;
+
+/**
+ * 按键批量加载，同一事件循环轮次(或load_batch_window毫秒)内的单键查询合并为in查询。
+ * <pre>
+ * load_batch_window: 0, load_batch_size: 1000
+ * </pre>
+ * 键按load_batch_size拆分，每份的占位符个数向上取2的幂并用最后一个键补齐，
+ * 避免每种键个数各生成一条语句占满sql缓存和预编译语句缓存。
+ *
+ * @author zhoudingyun
+ */
+public class BatchLoader {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final Vertx vertx;
+    private final String key;
+    private final long window;
+    private final int batchSize;
+    /**
+     * (where, 参数) -> 查询结果
+     */
+    private final BiFunction<String, JsonArray, Future<List<JsonObject>>> fetch;
+
+    private Map<Object, Pending> batch;
+
+    /**
+     * 构造方法。
+     *
+     * @param vertx     vertx
+     * @param key       键列名 -> id
+     * @param window    合并窗口毫秒数，小于等于0时合并同一事件循环轮次内的调用
+     * @param batchSize 单条in查询最多键个数
+     * @param fetch     (where, 参数) -> 查询结果
+     */
+    public BatchLoader(Vertx vertx, String key, long window, int batchSize, BiFunction<String, JsonArray, Future<List<JsonObject>>> fetch) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("load_batch_size(%d) <= 0", batchSize));
+        }
+        this.vertx = vertx;
+        this.key = key;
+        this.window = window;
+        this.batchSize = batchSize;
+        this.fetch = fetch;
+    }
+
+    /**
+     * 加载一条记录，记录不存在时返回null。
+     *
+     * @param value 键值 -> 1
+     * @return Future<JsonObject>
+     */
+    public Future<JsonObject> load(Object value) {
+        if (value == null) {
+            return Future.succeededFuture();
+        }
+        Promise<JsonObject> promise = Promise.promise();
+        Map<Object, Pending> scheduled = null;
+        synchronized (this) {
+            if (batch == null) {
+                batch = new LinkedHashMap<>();
+                scheduled = batch;
+            }
+            batch.computeIfAbsent(normalize(value), k -> new Pending(value)).add(promise, Vertx.currentContext());
+        }
+        if (scheduled != null) {
+            Map<Object, Pending> pending = scheduled;
+            if (window > 0) {
+                vertx.setTimer(window, id -> dispatch(pending));
+            } else {
+                vertx.getOrCreateContext().runOnContext(v -> dispatch(pending));
+            }
+        }
+        return promise.future();
+    }
+
+    private void dispatch(Map<Object, Pending> pending) {
+        synchronized (this) {
+            if (batch == pending) {
+                batch = null;
+            }
+        }
+        for (List<Pending> chunk : ArrayListUtils.partition(new ArrayList<>(pending.values()), batchSize)) {
+            int size = padded(chunk.size());
+            JsonArray arguments = new JsonArray(new ArrayList<>(size));
+            for (Pending p : chunk) {
+                arguments.add(p.value);
+            }
+            Object last = chunk.get(chunk.size() - 1).value;
+            while (arguments.size() < size) {
+                arguments.add(last);
+            }
+            fetch.apply(where(size), arguments).onComplete(r -> complete(chunk, r));
+        }
+    }
+
+    private void complete(List<Pending> chunk, AsyncResult<List<JsonObject>> result) {
+        if (result.failed()) {
+            for (Pending p : chunk) {
+                p.complete(Future.failedFuture(result.cause()));
+            }
+            return;
+        }
+        Map<Object, JsonObject> rows = new HashMap<>();
+        String column = null;
+        for (JsonObject row : result.result()) {
+            if (column == null) {
+                column = column(row);
+            }
+            rows.putIfAbsent(normalize(row.getValue(column)), row);
+        }
+        for (Pending p : chunk) {
+            p.complete(Future.succeededFuture(rows.get(normalize(p.value))));
+        }
+    }
+
+    /**
+     * 结果中的键列名，数据库可能返回大写列名。
+     */
+    private String column(JsonObject row) {
+        if (row.containsKey(key)) {
+            return key;
+        }
+        for (String name : row.fieldNames()) {
+            if (name.equalsIgnoreCase(key)) {
+                return name;
+            }
+        }
+        throw new IllegalStateException(String.format("column %s not found in %s", key, row.fieldNames()));
+    }
+
+    private String where(int size) {
+        StringBuilder sb = new StringBuilder(key.length() + 6 + size * 3).append(key).append(" in (");
+        for (int i = 0; i < size; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.append(')').toString();
+    }
+
+    private int padded(int size) {
+        int n = Integer.highestOneBit(size);
+        return Math.min(n == size ? n : n << 1, batchSize);
+    }
+
+    /**
+     * 数值键统一比较，参数Integer 1与结果Long 1视为同一键。
+     */
+    private static Object normalize(Object value) {
+        return value instanceof Number ? new BigDecimal(value.toString()).stripTrailingZeros() : value;
+    }
+
+    private static final class Pending {
+        private final Object value;
+        private final List<Promise<JsonObject>> waiters = new ArrayList<>(1);
+        private final List<Context> contexts = new ArrayList<>(1);
+
+        private Pending(Object value) {
+            this.value = value;
+        }
+
+        private void add(Promise<JsonObject> promise, Context context) {
+            waiters.add(promise);
+            contexts.add(context);
+        }
+
+        /**
+         * 同一键的多个调用各拿一份结果，在各自的context上回调。
+         */
+        private void complete(AsyncResult<JsonObject> result) {
+            for (int i = 0; i < waiters.size(); i++) {
+                Promise<JsonObject> promise = waiters.get(i);
+                Context context = contexts.get(i);
+                AsyncResult<JsonObject> own = i > 0 && result.succeeded() && result.result() != null
+                        ? Future.succeededFuture(result.result().copy()) : result;
+                if (context == null || context == Vertx.currentContext()) {
+                    promise.handle(own);
+                } else {
+                    context.runOnContext(v -> promise.handle(own));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.sql.SQLRowStream;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 持有数据库连接的SQLRowStream，流结束、出错或关闭后归还连接，只归还一次。
+ *
+ * @author zhoudingyun
+ */
+class ConnectionRowStream implements SQLRowStream {
+    private final SQLRowStream stream;
+    private final Runnable release;
+    private final AtomicBoolean released = new AtomicBoolean();
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    ConnectionRowStream(SQLRowStream stream, Runnable release) {
+        this.stream = stream;
+        this.release = release;
+        stream.endHandler(v -> {
+            release();
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+        });
+        stream.exceptionHandler(t -> {
+            // 出错时结果集已由SQLRowStream关闭
+            release();
+            if (exceptionHandler != null) {
+                exceptionHandler.handle(t);
+            }
+        });
+    }
+
+    private void release() {
+        if (released.compareAndSet(false, true)) {
+            release.run();
+        }
+    }
+
+    @Override
+    public SQLRowStream exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        return this;
+    }
+
+    @Override
+    public SQLRowStream handler(Handler<JsonArray> handler) {
+        stream.handler(handler);
+        return this;
+    }
+
+    @Override
+    public SQLRowStream pause() {
+        stream.pause();
+        return this;
+    }
+
+    @Override
+    public SQLRowStream resume() {
+        stream.resume();
+        return this;
+    }
+
+    @Override
+    public ReadStream<JsonArray> fetch(long amount) {
+        stream.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public SQLRowStream endHandler(Handler<Void> handler) {
+        this.endHandler = handler;
+        return this;
+    }
+
+    @Override
+    public int column(String name) {
+        return stream.column(name);
+    }
+
+    @Override
+    public List<String> columns() {
+        return stream.columns();
+    }
+
+    @Override
+    public SQLRowStream resultSetClosedHandler(Handler<Void> handler) {
+        stream.resultSetClosedHandler(handler);
+        return this;
+    }
+
+    @Override
+    public void moreResults() {
+        stream.moreResults();
+    }
+
+    @Override
+    public void close() {
+        close(null);
+    }
+
+    @Override
+    public void close(Handler<AsyncResult<Void>> handler) {
+        stream.close(ar -> {
+            release();
+            if (handler != null) {
+                handler.handle(ar);
+            }
+        });
+    }
+}
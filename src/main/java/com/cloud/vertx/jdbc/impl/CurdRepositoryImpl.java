@@ -1,22 +1,61 @@
 package com.cloud.vertx.jdbc.impl;
 
 import com.cloud.vertx.jdbc.CurdRepository;
+import com.cloud.vertx.jdbc.KeysetPage;
+import com.cloud.vertx.jdbc.enums.Mode;
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
+import com.cloud.vertx.jdbc.sql.AbstractSqlBuilder;
+import com.cloud.vertx.jdbc.sql.Dialect;
 import com.cloud.vertx.jdbc.sql.SqlBuilder;
+import com.cloud.vertx.jdbc.sql.SqlCache;
+import com.cloud.vertx.jdbc.sql.StandardDialect;
 import com.cloud.vertx.jdbc.sql.TSqlBuilder;
+import com.cloud.vertx.jdbc.util.ArrayListUtils;
+import com.cloud.vertx.jdbc.util.PoolUsage;
 import io.vertx.core.*;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.streams.ReadStream;
 import io.vertx.ext.sql.ResultSet;
 import io.vertx.ext.sql.SQLConnection;
 import io.vertx.ext.sql.UpdateResult;
 
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * curd操作实现类。
+ * <pre>
+ * dialect: mysql | postgresql | h2 | oracle | sqlserver, quote_identifiers: false
+ * </pre>
+ * 未配置dialect时按jdbc url判断方言，并在启动时按连接元数据校正，见 {@link StandardDialect}。
  *
  * @author zhoudingyun
  */
 public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdRepository {
+    public static final int DEFAULT_INSERT_CHUNK_SIZE = 500;
+    private static final Logger LOGGER = LoggerFactory.getLogger(CurdRepositoryImpl.class);
+
     private String tableName;
+    /**
+     * sql缓存，同时保存当前方言，共用缓存的repository使用同一方言。
+     */
+    protected SqlCache sqlCache;
+    protected int insertChunkSize;
+    protected boolean multiRowInsert;
+    /**
+     * 配置的upsert语法，为null时使用方言默认语法。
+     */
+    protected UpsertSyntax upsertSyntax;
+    protected boolean quoteIdentifiers;
+    protected long loadBatchWindow;
+    protected int loadBatchSize;
+    /**
+     * 批量加载器，键为(键列名, 查询列)，不与其他repository共用，会话内的加载使用会话连接。
+     */
+    private final Map<List<Object>, BatchLoader> loaders = new ConcurrentHashMap<>();
 
     /**
      * 构造方法。
@@ -29,6 +68,384 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
     public CurdRepositoryImpl(Vertx vertx, JsonObject config, String tableName) {
         super(vertx, config);
         this.tableName = tableName;
+        this.sqlCache = new SqlCache(config.getInteger("sql_cache_size", SqlCache.DEFAULT_SIZE));
+        this.insertChunkSize = config.getInteger("insert_chunk_size", DEFAULT_INSERT_CHUNK_SIZE);
+        this.multiRowInsert = config.getBoolean("multi_row_insert", true);
+        String syntax = config.getString("upsert_syntax");
+        this.upsertSyntax = syntax == null ? null : UpsertSyntax.of(syntax);
+        this.quoteIdentifiers = config.getBoolean("quote_identifiers", false);
+        this.loadBatchWindow = config.getLong("load_batch_window", 0L);
+        this.loadBatchSize = config.getInteger("load_batch_size", BatchLoader.DEFAULT_BATCH_SIZE);
+        String dialect = config.getString("dialect");
+        if (dialect != null) {
+            this.sqlCache.dialect(StandardDialect.of(dialect));
+        } else {
+            StandardDialect guessed = StandardDialect.fromUrl(config.getString("jdbcUrl", config.getString("url")));
+            if (guessed != null) {
+                this.sqlCache.dialect(guessed);
+            }
+            detectDialect();
+        }
+    }
+
+    /**
+     * 构造方法，与other共用连接池和sql缓存。
+     *
+     * @param other 已创建的repository
+     */
+    protected CurdRepositoryImpl(CurdRepositoryImpl other) {
+        super(other);
+        this.tableName = other.tableName;
+        this.sqlCache = other.sqlCache;
+        this.insertChunkSize = other.insertChunkSize;
+        this.multiRowInsert = other.multiRowInsert;
+        this.upsertSyntax = other.upsertSyntax;
+        this.quoteIdentifiers = other.quoteIdentifiers;
+        this.loadBatchWindow = other.loadBatchWindow;
+        this.loadBatchSize = other.loadBatchSize;
+    }
+
+    /**
+     * 构造方法，与other共用连接池和sql缓存，操作另一张表，连接使用单独统计。
+     *
+     * @param other     已创建的repository
+     * @param tableName 表名
+     */
+    protected CurdRepositoryImpl(CurdRepositoryImpl other, String tableName) {
+        this(other);
+        this.tableName = tableName;
+        this.usage = new PoolUsage();
+    }
+
+    /**
+     * 表名。
+     *
+     * @return String
+     */
+    protected String tableName() {
+        return tableName;
+    }
+
+    /**
+     * 按连接元数据的数据库产品名校正方言，在worker线程读取元数据，失败时保留按url判断的方言。
+     * 校正前生成的语句随方言变化从sql缓存中清除。
+     */
+    private void detectDialect() {
+        client.getConnection(ar -> {
+            if (ar.failed()) {
+                LOGGER.warn("dialect detection failed, using " + sqlCache.dialect().name(), ar.cause());
+                return;
+            }
+            SQLConnection connection = ar.result();
+            vertx.<String>executeBlocking(promise -> {
+                try {
+                    java.sql.Connection jdbc = connection.unwrap();
+                    promise.complete(jdbc.getMetaData().getDatabaseProductName());
+                } catch (Exception e) {
+                    promise.fail(e);
+                }
+            }, false, r -> {
+                connection.close();
+                StandardDialect detected = r.succeeded() ? StandardDialect.fromProductName(r.result()) : null;
+                if (detected != null) {
+                    sqlCache.dialect(detected);
+                } else {
+                    LOGGER.warn("dialect detection failed, using " + sqlCache.dialect().name(), r.cause());
+                }
+            });
+        });
+    }
+
+    /**
+     * 当前方言。
+     *
+     * @return Dialect
+     */
+    public Dialect dialect() {
+        return sqlCache.dialect();
+    }
+
+    /**
+     * 设置方言，用于内置方言之外的数据库，共用sql缓存的repository同时生效，已缓存的语句被清除。
+     *
+     * @param dialect 方言
+     * @return CurdRepositoryImpl
+     */
+    public CurdRepositoryImpl setDialect(Dialect dialect) {
+        sqlCache.dialect(Objects.requireNonNull(dialect, "dialect"));
+        return this;
+    }
+
+    /**
+     * 创建按当前方言生成sql的builder。
+     *
+     * @return SqlBuilder
+     */
+    protected SqlBuilder builder() {
+        return new TSqlBuilder(sqlCache.dialect(), quoteIdentifiers);
+    }
+
+    /**
+     * 生成where条件，开启quote_identifiers时引用字段名。
+     *
+     * @param keys       [name, uuid]
+     * @param conditions "name=? AND uuid=?"
+     */
+    @Override
+    public void generateConditions(Collection<String> keys, StringBuilder conditions) {
+        if (!quoteIdentifiers) {
+            CurdRepository.super.generateConditions(keys, conditions);
+            return;
+        }
+        int i = 0;
+        for (String key : keys) {
+            if (i++ != 0) {
+                conditions.append(" AND ");
+            }
+            conditions.append(identifier(key)).append("=?");
+        }
+    }
+
+    /**
+     * 开启quote_identifiers时按方言引用列名。
+     */
+    private String identifier(String name) {
+        return quoteIdentifiers ? new TSqlBuilder(sqlCache.dialect(), true).identifier(name) : name;
+    }
+
+    /**
+     * sql语句缓存统计信息。
+     *
+     * @return {size, maxSize, hits, misses, evictions}
+     */
+    @Override
+    public JsonObject sqlCacheStats() {
+        return sqlCache.stats();
+    }
+
+    /**
+     * 按键加载单条记录，同一事件循环轮次(或load_batch_window毫秒)内相同键列和查询列的调用合并为一条in查询，
+     * 按load_batch_size拆分，结果按键分发给各调用方。
+     * select id, name from user where id in (?, ?, ?, ?)
+     *
+     * @param key     键列名 -> id
+     * @param value   键值 -> 1
+     * @param columns 查询列 -> [id, name]
+     * @return Future<JsonObject> | 如果记录不存在返回 null
+     */
+    @Override
+    public Future<JsonObject> load(String key, Object value, JsonArray columns) {
+        JsonArray selected = columns == null ? new JsonArray() : columns.copy();
+        boolean extra = !selected.isEmpty() && column(selected.getList(), key) == null;
+        if (extra) {
+            // 分发结果需要键列，返回前去掉
+            selected.add(key);
+        }
+        BatchLoader loader = loaders.computeIfAbsent(Arrays.asList(key, selected.getList()),
+                k -> new BatchLoader(vertx, key, loadBatchWindow, loadBatchSize, (where, arguments) -> loadChunk(where, arguments, selected)));
+        Future<JsonObject> future = loader.load(value);
+        return extra ? future.map(row -> {
+            if (row != null) {
+                row.remove(column(row.fieldNames(), key));
+            }
+            return row;
+        }) : future;
+    }
+
+    private Future<List<JsonObject>> loadChunk(String where, JsonArray arguments, JsonArray columns) {
+        Promise<List<JsonObject>> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            find(connection, where, arguments, columns).onComplete(r -> {
+                promise.handle(r.map(ResultSet::getRows));
+                release(connection);
+            });
+        }));
+        return promise.future();
+    }
+
+    private static String column(Collection<?> names, String key) {
+        for (Object name : names) {
+            if (key.equalsIgnoreCase(String.valueOf(name))) {
+                return String.valueOf(name);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 生成insert语句。
+     *
+     * @param columns 列 -> [name, uuid]
+     * @return insert into user (name, uuid) values (?, ?)
+     */
+    protected String insertSql(String[] columns) {
+        return sqlCache.get(Mode.Insert, () -> builder().insert().into(this.tableName).values(columns).toString(),
+                this.tableName, columns);
+    }
+
+    /**
+     * 生成多行insert语句。
+     *
+     * @param columns 列 -> [name, uuid]
+     * @param rows    行数 -> 2
+     * @return insert into user (name, uuid) values (?, ?), (?, ?)
+     */
+    protected String insertSql(String[] columns, int rows) {
+        if (rows == 1) {
+            return insertSql(columns);
+        }
+        return sqlCache.get(Mode.Insert, () -> builder().insert().into(this.tableName).values(columns).rows(rows).toString(),
+                this.tableName, columns, rows);
+    }
+
+    /**
+     * 生成upsert语句，语法由upsert_syntax决定，未配置时使用方言默认语法。
+     *
+     * @param columns 列 -> [id, name, uuid]
+     * @param keys    冲突列 -> [id]
+     * @param rows    行数 -> 1
+     * @return insert into user (id, name, uuid) values (?, ?, ?) on duplicate key update name = values(name), uuid = values(uuid)
+     */
+    protected String upsertSql(String[] columns, String[] keys, int rows) {
+        return sqlCache.get(Mode.Upsert, () -> builder().upsert(upsertSyntax).into(this.tableName).values(columns).onConflict(keys).rows(rows).toString(),
+                this.tableName, columns, keys, rows, upsertSyntax);
+    }
+
+    /**
+     * 生成update语句。
+     *
+     * @param columns 列 -> [name, sex]
+     * @param where   条件字符串 "id =? and uuid=?" 或条件字段名 [id, uuid]
+     * @return update user set name = ?, sex = ? where id =? and uuid=?
+     */
+    protected String updateSql(String[] columns, Object where) {
+        return sqlCache.get(Mode.Update, () -> where(builder().update(this.tableName).values(columns), where, false).toString(),
+                this.tableName, columns, where);
+    }
+
+    /**
+     * 生成delete语句。
+     *
+     * @param where 条件字符串 "id =? and uuid=?" 或条件字段名 [id, uuid]
+     * @return delete from user where id =? and uuid=?
+     */
+    protected String deleteSql(Object where) {
+        return sqlCache.get(Mode.Delete, () -> where(builder().delete().from(this.tableName), where, false).toString(),
+                this.tableName, where);
+    }
+
+    /**
+     * 生成select语句。
+     *
+     * @param where   条件字符串 "name =? and uuid=?" 或条件字段名 [name, uuid]
+     * @param columns 查询列 -> [id, name, uuid]
+     * @param orderBy 排序 -> "id asc" | null
+     * @return select id, name, uuid from user where name =? and uuid=? order by id asc
+     */
+    protected String selectSql(Object where, JsonArray columns, String orderBy) {
+        return sqlCache.get(Mode.Select, () -> {
+            SqlBuilder sql = where(builder().select(columns).from(this.tableName), where, true);
+            if (orderBy != null) {
+                sql.orderBy(orderBy);
+            }
+            return sql.toString();
+        }, this.tableName, where, columns == null ? null : columns.getList().toArray(), orderBy);
+    }
+
+    /**
+     * 生成count语句。
+     *
+     * @param where 条件字符串 "name =? and uuid=?" 或条件字段名 [name, uuid]
+     * @return select count(1) from user where name =? and uuid=?
+     */
+    protected String countSql(Object where) {
+        return sqlCache.get(Mode.Select, () -> where(builder().select("count(1)").from(this.tableName), where, true).toString(),
+                this.tableName, where, "count(1)");
+    }
+
+    /**
+     * 生成单行select语句。
+     *
+     * @param where   条件字符串 "id =? and uuid=?" 或条件字段名 [id, uuid]
+     * @param columns 列 -> [id, name]
+     * @param orderBy 排序 -> id desc
+     * @return select id, name from user where id =? and uuid=? order by id desc limit 1
+     */
+    protected String oneSql(Object where, JsonArray columns, String orderBy) {
+        return sqlCache.get(Mode.Select, () -> {
+            SqlBuilder sql = where(builder().select(columns).from(this.tableName), where, true);
+            if (orderBy != null) {
+                sql.orderBy(orderBy);
+            }
+            return sql.limit(1).toString();
+        }, this.tableName, where, columns == null ? null : columns.getList().toArray(), orderBy, "limit 1");
+    }
+
+    /**
+     * 生成分页select语句，偏移量和数量使用占位符，与 {@link #queryPageWithParams} 参数顺序一致。
+     *
+     * @param where   条件字符串 "id =? and uuid=?" 或条件字段名 [id, uuid]
+     * @param columns 列 -> [id, name]
+     * @param orderBy 排序 -> id desc
+     * @return select id, name from user where id =? and uuid=? limit ?, ? | ... offset ? rows fetch next ? rows only
+     */
+    protected String pageSql(Object where, JsonArray columns, String orderBy) {
+        return sqlCache.get(Mode.Select, () -> selectSql(where, columns, orderBy) + sqlCache.dialect().pageClause(orderBy != null),
+                this.tableName, where, columns == null ? null : columns.getList().toArray(), orderBy, "page");
+    }
+
+    /**
+     * 生成键集分页select语句，按orderKey升序，数量使用占位符。
+     *
+     * @param where    条件字符串 "name =?" 或条件字段名 [name]
+     * @param orderKey 排序键 -> id
+     * @param after    是否生成 orderKey > ? 条件
+     * @param columns  列 -> [id, name]
+     * @return select id, name from user where (name =?) AND id > ? order by id limit ?
+     */
+    protected String keysetSql(Object where, String orderKey, boolean after, JsonArray columns) {
+        return sqlCache.get(Mode.Select, () -> {
+            StringBuilder conditions = new StringBuilder();
+            if (where instanceof String[]) {
+                generateConditions(Arrays.asList((String[]) where), conditions);
+            } else if (where != null && !((String) where).isEmpty()) {
+                conditions.append('(').append((String) where).append(')');
+            }
+            if (after) {
+                if (conditions.length() > 0) {
+                    conditions.append(" AND ");
+                }
+                conditions.append(identifier(orderKey)).append(" > ?");
+            }
+            SqlBuilder sql = builder().select(columns).from(this.tableName);
+            if (conditions.length() > 0) {
+                sql.where(conditions.toString());
+            }
+            return sql.orderBy(identifier(orderKey)).toString() + sqlCache.dialect().limitClause(true);
+        }, this.tableName, where, columns == null ? null : columns.getList().toArray(), orderKey, after, "keyset");
+    }
+
+    /**
+     * 设置where条件，optional为true时空条件不生成where子句。
+     * update/delete保持空条件时生成where，避免误操作全表。
+     */
+    private SqlBuilder where(SqlBuilder sql, Object where, boolean optional) {
+        String conditions;
+        if (where instanceof String[]) {
+            StringBuilder builder = new StringBuilder();
+            generateConditions(Arrays.asList((String[]) where), builder);
+            conditions = builder.toString();
+        } else {
+            conditions = (String) where;
+        }
+        if (!optional || (conditions != null && !conditions.isEmpty())) {
+            sql.where(conditions);
+        }
+        return sql;
+    }
+
+    protected static String[] keys(JsonObject json) {
+        return json.fieldNames().toArray(new String[0]);
     }
 
     /**
@@ -42,19 +459,340 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository create(SQLConnection connection, JsonObject values, Handler<AsyncResult<UpdateResult>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        String[] columns = new String[values.fieldNames().size()];
         JsonArray arguments = new JsonArray();
-        values.fieldNames().toArray(columns);
-        sql.insert().into(this.tableName).values(columns);
-        values.forEach(value -> {
-            arguments.add(value.getValue());
+        generateArguments(values, arguments);
+        this.updateWithParams(connection, insertSql(keys(values)), arguments, handler);
+
+        return this;
+    }
+
+    /**
+     * 新增并返回指定列。
+     * 方言支持时改写为 insert ... returning(PostgreSQL)、insert ... output inserted.x(SQL Server)、
+     * select ... from final table (insert ...)(H2)，一次往返返回数据库生成的值；
+     * 否则(MySQL、Oracle)执行insert，第一列取驱动返回的自增主键，其余列取自values。
+     *
+     * @param connection 数据库连接
+     * @param values     参数 -> {name='张三'，uuid='abc'}
+     * @param columns    返回列 -> [id, created_at]
+     * @param handler    回调函数 -> {id=1, created_at='2020-01-01 00:00:00'}
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository createReturning(SQLConnection connection, JsonObject values, JsonArray columns, Handler<AsyncResult<JsonObject>> handler) {
+        if (columns == null || columns.isEmpty()) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException("columns is empty")));
+            return this;
+        }
+        String[] names = new String[columns.size()];
+        String[] quoted = new String[columns.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = columns.getString(i);
+            quoted[i] = identifier(names[i]);
+        }
+        JsonArray arguments = new JsonArray();
+        generateArguments(values, arguments);
+        String insert = insertSql(keys(values));
+        String sql = sqlCache.dialect().returning(insert, quoted);
+        if (sql != null) {
+            connection.queryWithParams(sql, arguments, r -> handler.handle(r.map(rs -> rs.getRows().isEmpty() ? null : rs.getRows().get(0))));
+            return this;
+        }
+        this.updateWithParams(connection, insert, arguments, r -> handler.handle(r.map(result -> {
+            JsonObject row = new JsonObject();
+            JsonArray generated = result.getKeys();
+            for (int i = 0; i < names.length; i++) {
+                Object value = i == 0 && generated != null && !generated.isEmpty() ? generated.getValue(0) : values.getValue(names[i]);
+                row.put(names[i], value);
+            }
+            return row;
+        })));
+
+        return this;
+    }
+
+    /**
+     * 批量新增，按列集合分组，每组按chunkSize拆分为多行values语句依次执行。
+     * multi_row_insert为false时每组按chunkSize拆分为jdbc批处理。
+     * 不负责开启事务，需要事务时由调用方控制。
+     *
+     * @param connection 数据库连接
+     * @param rows       参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @param chunkSize  每条语句最多插入行数 -> 500
+     * @param handler    回调函数 -> 新增总行数
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository createAll(SQLConnection connection, List<JsonObject> rows, int chunkSize, Handler<AsyncResult<Integer>> handler) {
+        if (chunkSize <= 0) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException(String.format("chunkSize(%d) <= 0", chunkSize))));
+            return this;
+        }
+
+        // 列集合相同(忽略顺序)的行使用同一语句，列顺序取组内第一行
+        Map<Set<String>, List<JsonObject>> groups = new LinkedHashMap<>();
+        for (JsonObject row : rows) {
+            groups.computeIfAbsent(row.fieldNames(), k -> new ArrayList<>()).add(row);
+        }
+
+        int[] inserted = new int[1];
+        Future<Void> pipeline = Future.succeededFuture();
+        for (List<JsonObject> group : groups.values()) {
+            String[] columns = keys(group.get(0));
+            int size = chunkRows(chunkSize, columns.length);
+            for (List<JsonObject> chunk : ArrayListUtils.partition(group, size)) {
+                pipeline = pipeline.compose(v -> writeChunk(connection, columns, null, chunk).map(count -> {
+                    inserted[0] += count;
+                    return null;
+                }));
+            }
+        }
+        pipeline.map(v -> inserted[0]).onComplete(handler);
+
+        return this;
+    }
+
+    /**
+     * 每条语句的行数，不超过方言的参数个数上限，使用多行values时不超过方言的values行数上限。
+     */
+    private int chunkRows(int chunkSize, int columns) {
+        Dialect dialect = sqlCache.dialect();
+        int size = Math.min(chunkSize, dialect.maxParameters() / Math.max(1, columns));
+        if (multiRowInsert(dialect)) {
+            size = Math.min(size, dialect.maxInsertRows());
+        }
+        return Math.max(1, size);
+    }
+
+    /**
+     * 是否使用多行values，方言不支持时(Oracle)改用jdbc批处理。
+     */
+    private boolean multiRowInsert(Dialect dialect) {
+        return multiRowInsert && dialect.maxInsertRows() > 1;
+    }
+
+    /**
+     * 写入一组列相同的行，keys为null时insert，否则upsert。
+     */
+    private Future<Integer> writeChunk(SQLConnection connection, String[] columns, String[] keys, List<JsonObject> chunk) {
+        if (multiRowInsert(sqlCache.dialect())) {
+            JsonArray arguments = new JsonArray(new ArrayList<>(columns.length * chunk.size()));
+            for (JsonObject row : chunk) {
+                for (String column : columns) {
+                    arguments.add(row.getValue(column));
+                }
+            }
+            String sql = keys == null ? insertSql(columns, chunk.size()) : upsertSql(columns, keys, chunk.size());
+            return updateWithParams(connection, sql, arguments).map(UpdateResult::getUpdated);
+        }
+
+        return batchChunk(connection, keys == null ? insertSql(columns) : upsertSql(columns, keys, 1), columns, chunk);
+    }
+
+    /**
+     * 以jdbc批处理写入一组列相同的行。
+     */
+    private Future<Integer> batchChunk(SQLConnection connection, String sql, String[] columns, List<JsonObject> chunk) {
+        List<JsonArray> arguments = new ArrayList<>(chunk.size());
+        for (JsonObject row : chunk) {
+            JsonArray argument = new JsonArray(new ArrayList<>(columns.length));
+            for (String column : columns) {
+                argument.add(row.getValue(column));
+            }
+            arguments.add(argument);
+        }
+        return batchWithParams(connection, sql, arguments).map(counts -> {
+            int count = 0;
+            for (Integer c : counts) {
+                // 驱动返回SUCCESS_NO_INFO(-2)时按插入一行计
+                count += c >= 0 ? c : 1;
+            }
+            return count;
         });
-        this.updateWithParams(connection, sql.toString(), arguments, handler);
+    }
+
+    /**
+     * 新增或按冲突列更新，一条语句完成，语法由upsert_syntax决定。
+     * insert into user(id, name) values(1, '张三') on duplicate key update name = values(name)
+     *
+     * @param connection   数据库连接
+     * @param values       参数 -> {id=1, name='张三'}
+     * @param conflictKeys 冲突列 -> [id]，需包含在values中
+     * @param handler      回调函数
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository upsert(SQLConnection connection, JsonObject values, JsonArray conflictKeys, Handler<AsyncResult<UpdateResult>> handler) {
+        String[] columns = keys(values);
+        String[] keys;
+        try {
+            keys = conflictKeys(columns, conflictKeys);
+        } catch (IllegalArgumentException e) {
+            handler.handle(Future.failedFuture(e));
+            return this;
+        }
+        JsonArray arguments = new JsonArray();
+        generateArguments(values, arguments);
+        this.updateWithParams(connection, upsertSql(columns, keys, 1), arguments, handler);
 
         return this;
     }
 
+    /**
+     * 批量新增或更新，按原有顺序切分为列集合相同的连续段，每段按chunkSize拆分为多行语句。
+     * 段内冲突列值相同的行只保留最后一行，返回的影响行数按合并后的行计算。
+     * 不负责开启事务，需要事务时由调用方控制。
+     *
+     * @param connection   数据库连接
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @param chunkSize    每条语句最多行数 -> 500
+     * @param handler      回调函数 -> 驱动返回的影响行数之和
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository upsertAll(SQLConnection connection, List<JsonObject> rows, JsonArray conflictKeys, int chunkSize, Handler<AsyncResult<Integer>> handler) {
+        if (chunkSize <= 0) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException(String.format("chunkSize(%d) <= 0", chunkSize))));
+            return this;
+        }
+
+        // 按原有顺序切分为列集合相同的连续段，同一冲突键的多次写入保持先后顺序
+        List<List<JsonObject>> runs = new ArrayList<>();
+        Set<String> fields = null;
+        for (JsonObject row : rows) {
+            if (!row.fieldNames().equals(fields)) {
+                fields = row.fieldNames();
+                runs.add(new ArrayList<>());
+            }
+            runs.get(runs.size() - 1).add(row);
+        }
+
+        // 写入前校验所有段的冲突列，避免前面的段已写入后才失败
+        List<String[]> runKeys = new ArrayList<>(runs.size());
+        for (List<JsonObject> run : runs) {
+            try {
+                runKeys.add(conflictKeys(keys(run.get(0)), conflictKeys));
+            } catch (IllegalArgumentException e) {
+                handler.handle(Future.failedFuture(e));
+                return this;
+            }
+        }
+
+        int[] affected = new int[1];
+        Future<Void> pipeline = Future.succeededFuture();
+        for (int i = 0; i < runs.size(); i++) {
+            String[] keys = runKeys.get(i);
+            List<JsonObject> run = distinct(runs.get(i), keys);
+            String[] columns = keys(run.get(0));
+            int size = chunkRows(chunkSize, columns.length);
+            for (List<JsonObject> chunk : ArrayListUtils.partition(run, size)) {
+                pipeline = pipeline.compose(v -> writeChunk(connection, columns, keys, chunk).map(count -> {
+                    affected[0] += count;
+                    return null;
+                }));
+            }
+        }
+        pipeline.map(v -> affected[0]).onComplete(handler);
+
+        return this;
+    }
+
+    /**
+     * 流式批量导入，行按batchSize攒成jdbc批处理执行，批执行期间暂停数据源，每commitEvery批提交一次。
+     * 导入期间关闭自动提交，结束后恢复；某批失败时回滚未提交的批并停止，已提交的批保留。
+     * 与 {@link #createAll} 不同，不需要把整个文件读入内存。
+     *
+     * @param connection  数据库连接
+     * @param rows        数据源 -> 按行解析的文件、消息流，列名即表的列名
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10，小于等于0时全部写入后提交一次
+     * @param progress    每批完成后回调 -> {batch, batchRows, rows, committed, millis, rowsPerSecond[, error]}，可为null
+     * @param handler     回调函数 -> {batches, rows, committed, millis, rowsPerSecond}
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository importStream(SQLConnection connection, ReadStream<JsonObject> rows, int batchSize, int commitEvery, Handler<JsonObject> progress, Handler<AsyncResult<JsonObject>> handler) {
+        StreamImporter importer;
+        try {
+            importer = new StreamImporter(rows, batchSize, commitEvery, progress, chunk -> {
+                String[] columns = keys(chunk.get(0));
+                return batchChunk(connection, insertSql(columns), columns, chunk);
+            }, () -> {
+                Promise<Void> promise = Promise.promise();
+                connection.commit(promise);
+                return promise.future();
+            });
+        } catch (IllegalArgumentException e) {
+            // 参数不合法时数据源尚未暂停，不改变其状态
+            handler.handle(Future.failedFuture(e));
+            return this;
+        }
+        rows.pause();
+        connection.setAutoCommit(false, begin -> {
+            if (begin.failed()) {
+                // 导入未开始，恢复数据源
+                rows.resume();
+                handler.handle(Future.failedFuture(begin.cause()));
+                return;
+            }
+            importer.start().onComplete(r -> {
+                if (r.succeeded()) {
+                    connection.setAutoCommit(true, v -> handler.handle(r));
+                } else {
+                    connection.rollback(rb -> {
+                        if (rb.failed()) {
+                            r.cause().addSuppressed(rb.cause());
+                        }
+                        connection.setAutoCommit(true, v -> handler.handle(r));
+                    });
+                }
+            });
+        });
+
+        return this;
+    }
+
+    /**
+     * 合并冲突列值相同的行，保留最后一行。
+     * 同一条多行语句中冲突键重复时PostgreSQL(cannot affect row a second time)和SQL Server MERGE会失败，
+     * 列集合相同时依次写入的结果就是最后一行。
+     */
+    private static List<JsonObject> distinct(List<JsonObject> run, String[] keys) {
+        Map<List<Object>, JsonObject> rows = new LinkedHashMap<>(run.size() * 2);
+        for (JsonObject row : run) {
+            List<Object> key = new ArrayList<>(keys.length);
+            for (String k : keys) {
+                key.add(row.getValue(k));
+            }
+            rows.put(key, row);
+        }
+        return rows.size() == run.size() ? run : new ArrayList<>(rows.values());
+    }
+
+    /**
+     * 校验冲突列都在写入列中，返回写入列中的列名。
+     */
+    private static String[] conflictKeys(String[] columns, JsonArray conflictKeys) {
+        if (conflictKeys == null || conflictKeys.isEmpty()) {
+            throw new IllegalArgumentException("conflictKeys is empty");
+        }
+        String[] keys = new String[conflictKeys.size()];
+        for (int i = 0; i < keys.length; i++) {
+            String key = conflictKeys.getString(i);
+            for (String column : columns) {
+                if (column.equalsIgnoreCase(key)) {
+                    keys[i] = column;
+                    break;
+                }
+            }
+            if (keys[i] == null) {
+                throw new IllegalArgumentException(String.format("conflict key %s not in %s", key, Arrays.toString(columns)));
+            }
+        }
+        return keys;
+    }
+
     /**
      * 新增。
      * insert into user(name,uuid) values('张三', 'abc')
@@ -90,17 +828,11 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository update(SQLConnection connection, JsonObject set, String where, JsonArray whereArguments, Handler<AsyncResult<UpdateResult>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        String[] columns = new String[set.fieldNames().size()];
         JsonArray arguments = new JsonArray();
-        set.fieldNames().toArray(columns);
-        sql.update(this.tableName).values(columns).where(where);
-        set.forEach(value -> {
-            arguments.add(value.getValue());
-        });
+        generateArguments(set, arguments);
         arguments.addAll(whereArguments);
 
-        this.updateWithParams(connection, sql.toString(), arguments, handler);
+        this.updateWithParams(connection, updateSql(keys(set), where), arguments, handler);
         return this;
     }
 
@@ -140,21 +872,11 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository update(SQLConnection connection, JsonObject sets, JsonObject where, Handler<AsyncResult<UpdateResult>> handler) {
-        StringBuilder conditions = new StringBuilder();
-        JsonArray argumentsWhere = new JsonArray();
-        generateWhere(where, conditions, argumentsWhere);
-
-        SqlBuilder sql = new TSqlBuilder();
-        String[] columns = new String[sets.fieldNames().size()];
         JsonArray arguments = new JsonArray();
-        sets.fieldNames().toArray(columns);
-        sql.update(this.tableName).values(columns).where(conditions.toString());
-        sets.forEach(value -> {
-            arguments.add(value.getValue());
-        });
-        arguments.addAll(argumentsWhere);
+        generateArguments(sets, arguments);
+        generateArguments(where, arguments);
 
-        this.updateWithParams(connection, sql.toString(), arguments, handler);
+        this.updateWithParams(connection, updateSql(keys(sets), keys(where)), arguments, handler);
         return this;
     }
 
@@ -193,9 +915,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository delete(SQLConnection connection, String where, JsonArray whereArguments, Handler<AsyncResult<UpdateResult>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        sql.delete().from(this.tableName).where(where);
-        this.updateWithParams(connection, sql.toString(), whereArguments, handler);
+        this.updateWithParams(connection, deleteSql(where), whereArguments, handler);
         return this;
     }
 
@@ -233,13 +953,9 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository delete(SQLConnection connection, JsonObject where, Handler<AsyncResult<UpdateResult>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
-
-        SqlBuilder sql = new TSqlBuilder();
-        sql.delete().from(this.tableName).where(conditions.toString());
-        this.updateWithParams(connection, sql.toString(), arguments, handler);
+        generateArguments(where, arguments);
+        this.updateWithParams(connection, deleteSql(keys(where)), arguments, handler);
 
         return this;
     }
@@ -279,10 +995,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findOne(SQLConnection connection, String where, JsonArray whereArguments, JsonArray columns, Handler<AsyncResult<JsonObject>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-
-        sql.select(columns).from(this.tableName).where(where);
-        this.queryOneWithParams(connection, sql.toString(), whereArguments, handler);
+        first(connection, oneSql(where, columns, null), whereArguments, handler);
 
         return this;
     }
@@ -299,13 +1012,9 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findOne(SQLConnection connection, JsonObject where, JsonArray columns, Handler<AsyncResult<JsonObject>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
-
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select(columns).from(this.tableName).where(conditions.toString());
-        this.queryOneWithParams(connection, sql.toString(), arguments, handler);
+        generateArguments(where, arguments);
+        first(connection, oneSql(keys(where), columns, null), arguments, handler);
 
         return this;
     }
@@ -324,9 +1033,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findOneOrder(SQLConnection connection, String where, JsonArray whereArguments, String orderBy, JsonArray columns, Handler<AsyncResult<JsonObject>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select(columns).from(this.tableName).where(where).orderBy(orderBy);
-        this.queryOneWithParams(connection, sql.toString(), whereArguments, handler);
+        first(connection, oneSql(where, columns, orderBy), whereArguments, handler);
 
         return this;
     }
@@ -344,13 +1051,9 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findOneOrder(SQLConnection connection, JsonObject where, String orderBy, JsonArray columns, Handler<AsyncResult<JsonObject>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
-
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select(columns).from(this.tableName).where(conditions.toString()).orderBy(orderBy);
-        this.queryOneWithParams(connection, sql.toString(), arguments, handler);
+        generateArguments(where, arguments);
+        first(connection, oneSql(keys(where), columns, orderBy), arguments, handler);
 
         return this;
     }
@@ -368,9 +1071,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository find(SQLConnection connection, String where, JsonArray whereArguments, JsonArray columns, Handler<AsyncResult<ResultSet>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select(columns).from(this.tableName).where(where);
-        this.queryWithParams(connection, sql.toString(), whereArguments, handler);
+        this.queryWithParams(connection, selectSql(where, columns, null), whereArguments, handler);
 
         return this;
     }
@@ -387,13 +1088,9 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository find(SQLConnection connection, JsonObject where, JsonArray columns, Handler<AsyncResult<ResultSet>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
-        SqlBuilder sql = new TSqlBuilder();
-
-        sql.select(columns).from(this.tableName).where(conditions.toString());
-        this.queryWithParams(connection, sql.toString(), arguments, handler);
+        generateArguments(where, arguments);
+        this.queryWithParams(connection, selectSql(keys(where), columns, null), arguments, handler);
         return this;
     }
 
@@ -411,10 +1108,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findOrder(SQLConnection connection, String where, JsonArray whereArguments, String orderBy, JsonArray columns, Handler<AsyncResult<ResultSet>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-
-        sql.select(columns).from(this.tableName).where(where).orderBy(orderBy);
-        this.queryWithParams(connection, sql.toString(), whereArguments, handler);
+        this.queryWithParams(connection, selectSql(where, columns, orderBy), whereArguments, handler);
         return this;
     }
 
@@ -431,13 +1125,9 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findOrder(SQLConnection connection, JsonObject where, String orderBy, JsonArray columns, Handler<AsyncResult<ResultSet>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
-
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select(columns).from(this.tableName).where(conditions.toString()).orderBy(orderBy);
-        this.queryWithParams(connection, sql.toString(), arguments, handler);
+        generateArguments(where, arguments);
+        this.queryWithParams(connection, selectSql(keys(where), columns, orderBy), arguments, handler);
         return this;
     }
 
@@ -456,9 +1146,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findPage(SQLConnection connection, String where, JsonArray whereArguments, int page, int limit, JsonArray columns, Handler<AsyncResult<ResultSet>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select(columns).from(this.tableName).where(where);
-        this.queryPageWithParams(connection, sql.toString(), whereArguments, page, limit, handler);
+        this.queryPageWithParams(connection, pageSql(where, columns, null), whereArguments, page, limit, handler);
         return this;
     }
 
@@ -476,17 +1164,134 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository findPage(SQLConnection connection, JsonObject where, int page, int limit, JsonArray columns, Handler<AsyncResult<ResultSet>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
+        generateArguments(where, arguments);
+        this.queryPageWithParams(connection, pageSql(keys(where), columns, null), arguments, page, limit, handler);
+        return this;
+    }
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where (name='张三') AND id > 100 order by id limit 11
+     *
+     * @param connection     数据库连接
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param lastKeyValue   上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @param handler        回调函数
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository findAfter(SQLConnection connection, String where, JsonArray whereArguments, String orderKey, Object lastKeyValue, int limit, JsonArray columns, Handler<AsyncResult<KeysetPage>> handler) {
+        JsonArray arguments = new JsonArray();
+        if (whereArguments != null) {
+            arguments.addAll(whereArguments);
+        }
+        return findAfter(connection, (Object) where, arguments, orderKey, lastKeyValue, limit, columns, handler);
+    }
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where name=? AND id > ? order by id limit ?
+     *
+     * @param connection   数据库连接
+     * @param where        where -> {name='张三'}
+     * @param orderKey     排序键 -> id
+     * @param lastKeyValue 上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit        limit -> 10
+     * @param columns      columns -> id, name ,uuid
+     * @param handler      回调函数
+     * @return CurdRepository
+     */
+    @Override
+    public CurdRepository findAfter(SQLConnection connection, JsonObject where, String orderKey, Object lastKeyValue, int limit, JsonArray columns, Handler<AsyncResult<KeysetPage>> handler) {
+        JsonArray arguments = new JsonArray();
+        generateArguments(where, arguments);
+        return findAfter(connection, keys(where), arguments, orderKey, lastKeyValue, limit, columns, handler);
+    }
 
-        SqlBuilder sql = new TSqlBuilder();
+    private CurdRepository findAfter(SQLConnection connection, Object where, JsonArray arguments, String orderKey, Object lastKeyValue, int limit, JsonArray columns, Handler<AsyncResult<KeysetPage>> handler) {
+        if (orderKey == null || orderKey.isEmpty()) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException("orderKey is empty")));
+            return this;
+        }
+        // 排序键直接拼入sql，只接受列名
+        if (!AbstractSqlBuilder.isIdentifier(orderKey)) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException(String.format("orderKey(%s) is not a column name", orderKey))));
+            return this;
+        }
+        if (limit <= 0) {
+            handler.handle(Future.failedFuture(new IllegalArgumentException(String.format("limit(%d) <= 0", limit))));
+            return this;
+        }
 
-        sql.select(columns).from(this.tableName).where(conditions.toString());
-        this.queryPageWithParams(connection, sql.toString(), arguments, page, limit, handler);
+        // 查询列必须包含排序键，才能生成下一页游标
+        JsonArray keysetColumns = columns;
+        if (columns != null && !columns.isEmpty() && !containsColumn(columns, orderKey)) {
+            keysetColumns = columns.copy().add(orderKey);
+        }
+        if (lastKeyValue != null) {
+            arguments.add(lastKeyValue);
+        }
+        arguments.add(limit + 1);
+
+        this.queryWithParams(connection, keysetSql(where, orderKey, lastKeyValue != null, keysetColumns), arguments, r -> {
+            if (r.failed()) {
+                handler.handle(Future.failedFuture(r.cause()));
+                return;
+            }
+            List<JsonObject> rows = r.result().getRows();
+            String cursor = null;
+            if (rows.size() > limit) {
+                rows = new ArrayList<>(rows.subList(0, limit));
+                cursor = KeysetPage.encodeCursor(orderKey, columnValue(rows.get(limit - 1), orderKey));
+            }
+            handler.handle(Future.succeededFuture(new KeysetPage(rows, cursor)));
+        });
         return this;
     }
 
+    /**
+     * 执行已限制为单行的语句，取第一行。
+     */
+    private void first(SQLConnection connection, String sql, JsonArray arguments, Handler<AsyncResult<JsonObject>> handler) {
+        this.queryWithParams(connection, sql, arguments, r -> {
+            if (r.succeeded()) {
+                List<JsonObject> rows = r.result().getRows();
+                handler.handle(Future.succeededFuture(rows == null || rows.isEmpty() ? null : rows.get(0)));
+            } else {
+                handler.handle(Future.failedFuture(r.cause()));
+            }
+        });
+    }
+
+    /**
+     * 忽略大小写匹配列名，数据库返回的列名大小写可能与查询时不同。
+     */
+    private static boolean containsColumn(JsonArray columns, String column) {
+        for (Object c : columns) {
+            if (column.equalsIgnoreCase(String.valueOf(c))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Object columnValue(JsonObject row, String column) {
+        if (row.containsKey(column)) {
+            return row.getValue(column);
+        }
+        for (String name : row.fieldNames()) {
+            if (name.equalsIgnoreCase(column)) {
+                return row.getValue(name);
+            }
+        }
+        return null;
+    }
+
     /**
      * 根据条件查询数据总数。
      * select count(1) user where name='张三' and uuid='abc'
@@ -499,9 +1304,7 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository count(SQLConnection connection, String where, JsonArray whereArguments, Handler<AsyncResult<Integer>> handler) {
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select("count(1)").from(this.tableName).where(where);
-        this.queryCountWithParams(connection, sql.toString(), whereArguments, handler);
+        this.queryCountWithParams(connection, countSql(where), whereArguments, handler);
         return this;
     }
 
@@ -516,12 +1319,9 @@ public class CurdRepositoryImpl extends BaseRepositoryImpl implements CurdReposi
      */
     @Override
     public CurdRepository count(SQLConnection connection, JsonObject where, Handler<AsyncResult<Integer>> handler) {
-        StringBuilder conditions = new StringBuilder();
         JsonArray arguments = new JsonArray();
-        generateWhere(where, conditions, arguments);
-        SqlBuilder sql = new TSqlBuilder();
-        sql.select("count(1)").from(this.tableName).where(conditions.toString());
-        this.queryCountWithParams(connection, sql.toString(), arguments, handler);
+        generateArguments(where, arguments);
+        this.queryCountWithParams(connection, countSql(keys(where)), arguments, handler);
         return this;
     }
 }
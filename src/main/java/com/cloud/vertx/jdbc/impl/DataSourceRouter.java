@@ -0,0 +1,201 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.enums.Balance;
+import io.vertx.core.*;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.JDBCClient;
+import io.vertx.ext.sql.SQLConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 主从连接路由。
+ * 写操作、事务使用主库，读操作按负载均衡策略使用从库；
+ * 同一context内写连接归还后read_your_writes_window毫秒内的读操作仍走主库，保证读到自己的写入。
+ * 从库获取连接失败时读操作退回主库。
+ *
+ * @author zhoudingyun
+ */
+public class DataSourceRouter {
+    public static final long DEFAULT_READ_YOUR_WRITES_WINDOW = 1000L;
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final JDBCClient primary;
+    private final Replica[] replicas;
+    private final Balance balance;
+    private final long window;
+    private final String contextKey;
+    private final AtomicInteger next = new AtomicInteger();
+    /**
+     * 已借出的连接 -> 来源，主库写连接为WRITE，主库读连接为READ。
+     */
+    private final Map<SQLConnection, Object> borrowed = new ConcurrentHashMap<>();
+    private volatile long lastWrite;
+
+    private static final Object WRITE = new Object();
+    private static final Object READ = new Object();
+
+    /**
+     * 构造方法。
+     *
+     * @param vertx   vertx
+     * @param primary 主库连接池
+     * @param config  config -> {replicas: [{url: ...}], replica_balance: round_robin, read_your_writes_window: 1000}
+     */
+    public DataSourceRouter(Vertx vertx, JDBCClient primary, JsonObject config) {
+        this.primary = primary;
+        this.balance = Balance.of(config.getString("replica_balance"));
+        this.window = config.getLong("read_your_writes_window", DEFAULT_READ_YOUR_WRITES_WINDOW);
+        this.contextKey = DataSourceRouter.class.getName() + "." + SEQUENCE.incrementAndGet();
+
+        JsonObject base = config.copy();
+        base.remove("replicas");
+        String dataSourceName = config.getString("data_source_name");
+        JsonArray list = config.getJsonArray("replicas");
+        List<Replica> replicas = new ArrayList<>(list.size());
+        for (int i = 0; i < list.size(); i++) {
+            // 从库配置覆盖主库配置，一般只需提供url
+            JsonObject replicaConfig = StatementCacheConfig.apply(base.copy().mergeIn(list.getJsonObject(i)));
+            replicas.add(new Replica(dataSourceName == null ? JDBCClient.create(vertx, replicaConfig)
+                    : JDBCClient.createShared(vertx, replicaConfig, dataSourceName + ".replica" + i)));
+        }
+        this.replicas = replicas.toArray(new Replica[0]);
+    }
+
+    /**
+     * 配置中是否包含从库。
+     *
+     * @param config config
+     * @return boolean
+     */
+    public static boolean hasReplicas(JsonObject config) {
+        JsonArray replicas = config.getJsonArray("replicas");
+        return replicas != null && !replicas.isEmpty();
+    }
+
+    /**
+     * 获取写连接。
+     *
+     * @param handler 回调函数
+     */
+    public void acquireWrite(Handler<AsyncResult<SQLConnection>> handler) {
+        primary.getConnection(track(WRITE, handler));
+    }
+
+    /**
+     * 获取读连接。
+     *
+     * @param handler 回调函数
+     */
+    public void acquireRead(Handler<AsyncResult<SQLConnection>> handler) {
+        if (window > 0 && System.currentTimeMillis() - lastWrite() < window) {
+            primary.getConnection(track(READ, handler));
+            return;
+        }
+        Replica replica = select();
+        replica.outstanding.incrementAndGet();
+        replica.client.getConnection(r -> {
+            if (r.succeeded()) {
+                borrowed.put(r.result(), replica);
+                handler.handle(r);
+            } else {
+                replica.outstanding.decrementAndGet();
+                primary.getConnection(track(READ, handler));
+            }
+        });
+    }
+
+    /**
+     * 归还连接，写连接归还时记录当前context的写入时间。
+     *
+     * @param connection 数据库连接
+     * @param handler    回调函数，可为null
+     */
+    public void release(SQLConnection connection, Handler<AsyncResult<Void>> handler) {
+        Object source = borrowed.remove(connection);
+        if (source instanceof Replica) {
+            ((Replica) source).outstanding.decrementAndGet();
+        } else if (source == WRITE) {
+            markWrite();
+        }
+        if (handler == null) {
+            connection.close();
+        } else {
+            connection.close(handler);
+        }
+    }
+
+    /**
+     * 关闭从库连接池，主库连接池由repository关闭。
+     *
+     * @return Future<Void>
+     */
+    public Future<Void> close() {
+        // 各连接池同时关闭，全部完成后结束
+        Future<Void> all = Future.succeededFuture();
+        for (Replica replica : replicas) {
+            Promise<Void> promise = Promise.promise();
+            replica.client.close(promise);
+            all = CompositeFuture.all(all, promise.future()).mapEmpty();
+        }
+        return all;
+    }
+
+    private Handler<AsyncResult<SQLConnection>> track(Object source, Handler<AsyncResult<SQLConnection>> handler) {
+        return r -> {
+            if (r.succeeded()) {
+                borrowed.put(r.result(), source);
+            }
+            handler.handle(r);
+        };
+    }
+
+    private Replica select() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.length);
+        if (balance == Balance.RoundRobin) {
+            return replicas[start];
+        }
+        Replica best = replicas[start];
+        for (int i = 1; i < replicas.length; i++) {
+            Replica replica = replicas[(start + i) % replicas.length];
+            if (replica.outstanding.get() < best.outstanding.get()) {
+                best = replica;
+            }
+        }
+        return best;
+    }
+
+    private long lastWrite() {
+        Context context = Vertx.currentContext();
+        if (context == null) {
+            return lastWrite;
+        }
+        Long time = context.get(contextKey);
+        return time == null ? 0L : time;
+    }
+
+    private void markWrite() {
+        long now = System.currentTimeMillis();
+        // 非vertx线程发起的调用每次回调都在新context上，同时记录一份供其读取
+        lastWrite = now;
+        Context context = Vertx.currentContext();
+        if (context != null) {
+            context.put(contextKey, now);
+        }
+    }
+
+    private static final class Replica {
+        private final JDBCClient client;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        private Replica(JDBCClient client) {
+            this.client = client;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.util.LruCache;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 按主键缓存findOne结果的实体缓存，LRU淘汰，写入后ttl毫秒过期。
+ * <pre>
+ * entity_cache: {key: "id", size: 10000, ttl: 60000, cluster: false}
+ * </pre>
+ * 只缓存条件仅为主键且查询全部列的findOne，不缓存不存在的记录。
+ * 写操作条件包含主键时只失效该主键，否则失效整张表；cluster为true时通过event bus通知其他实例失效。
+ * 每次失效递增版本号，查询开始后发生过失效的结果不放入缓存，避免并发写入时缓存旧值。
+ *
+ * @author zhoudingyun
+ */
+public class EntityCache {
+    public static final int DEFAULT_SIZE = 10000;
+    public static final long DEFAULT_TTL = 60000L;
+    public static final String ADDRESS_PREFIX = "vertx-jdbc.entity-cache.";
+
+    private final String tableName;
+    private final String key;
+    private final Pattern keyWhere;
+    private final LruCache<Object, JsonObject> cache;
+    private final AtomicLong generation = new AtomicLong();
+    private final Vertx vertx;
+    private final String address;
+    private final MessageConsumer<JsonObject> consumer;
+
+    /**
+     * 构造方法。
+     *
+     * @param vertx     vertx
+     * @param tableName 表名
+     * @param config    entity_cache配置
+     */
+    public EntityCache(Vertx vertx, String tableName, JsonObject config) {
+        this.tableName = tableName.toLowerCase(Locale.ROOT);
+        this.key = config.getString("key", "id");
+        this.keyWhere = Pattern.compile("\\s*`?" + Pattern.quote(key) + "`?\\s*=\\s*\\?\\s*", Pattern.CASE_INSENSITIVE);
+        this.cache = new LruCache<>(config.getInteger("size", DEFAULT_SIZE), config.getLong("ttl", DEFAULT_TTL));
+        this.vertx = vertx;
+        if (config.getBoolean("cluster", false)) {
+            this.address = ADDRESS_PREFIX + tableName;
+            this.consumer = vertx.eventBus().consumer(address, message -> {
+                JsonObject body = message.body();
+                if (body.containsKey("key")) {
+                    evictLocal(normalize(body.getValue("key")));
+                } else {
+                    clearLocal();
+                }
+            });
+        } else {
+            this.address = null;
+            this.consumer = null;
+        }
+    }
+
+    /**
+     * 查询条件对应的缓存键。
+     *
+     * @param where   条件 -> {id: 1}
+     * @param columns 列，为空时表示全部列
+     * @return 缓存键 | 不可缓存时返回null
+     */
+    public Object key(JsonObject where, JsonArray columns) {
+        if (where == null || where.size() != 1 || (columns != null && !columns.isEmpty())) {
+            return null;
+        }
+        Object value = keyValue(where);
+        return value instanceof JsonObject || value instanceof JsonArray ? null : normalize(value);
+    }
+
+    /**
+     * 获取缓存，返回副本。
+     *
+     * @param key 缓存键
+     * @return JsonObject | 不存在返回null
+     */
+    public JsonObject get(Object key) {
+        JsonObject row = cache.get(key);
+        return row == null ? null : row.copy();
+    }
+
+    /**
+     * 当前版本号，查询前获取，放入缓存时校验。
+     *
+     * @return long
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * 放入缓存，查询期间发生过失效时忽略。
+     *
+     * @param key        缓存键
+     * @param row        查询结果
+     * @param generation 查询前的版本号
+     */
+    public void put(Object key, JsonObject row, long generation) {
+        if (row == null) {
+            return;
+        }
+        JsonObject copy = row.copy();
+        synchronized (this) {
+            if (this.generation.get() == generation) {
+                cache.put(key, copy);
+            }
+        }
+    }
+
+    /**
+     * 按写操作条件失效。
+     *
+     * @param where 条件 -> {id: 1, status: 0}
+     */
+    public void invalidate(JsonObject where) {
+        Object value = where == null ? null : keyValue(where);
+        if (value == null) {
+            invalidateAll();
+        } else {
+            evict(normalize(value));
+        }
+    }
+
+    /**
+     * 按写操作条件失效，条件为"主键=?"时只失效该主键。
+     *
+     * @param where     条件 -> "id = ?"
+     * @param arguments 参数 -> [1]
+     */
+    public void invalidate(String where, JsonArray arguments) {
+        if (where != null && arguments != null && arguments.size() == 1 && keyWhere.matcher(where).matches()) {
+            evict(normalize(arguments.getValue(0)));
+        } else {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 执行原始sql后失效，语句包含表名时失效整张表。
+     *
+     * @param sql sql语句
+     */
+    public void invalidateSql(String sql) {
+        if (sql != null && sql.toLowerCase(Locale.ROOT).contains(tableName)) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * 失效整张表。
+     */
+    public void invalidateAll() {
+        clearLocal();
+        if (address != null) {
+            vertx.eventBus().publish(address, new JsonObject());
+        }
+    }
+
+    private void evict(Object key) {
+        evictLocal(key);
+        if (address != null) {
+            vertx.eventBus().publish(address, new JsonObject().put("key", key));
+        }
+    }
+
+    private synchronized void evictLocal(Object key) {
+        generation.incrementAndGet();
+        cache.remove(key);
+    }
+
+    private synchronized void clearLocal() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    private Object keyValue(JsonObject where) {
+        for (String name : where.fieldNames()) {
+            if (name.equalsIgnoreCase(key)) {
+                return where.getValue(name);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 整数统一为Long，与event bus解码后的类型一致。
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        return value;
+    }
+
+    /**
+     * 缓存统计信息。
+     *
+     * @return {size, maxSize, hits, misses, hitRatio, evictions, expirations}
+     */
+    public JsonObject stats() {
+        long hits = cache.hits();
+        long total = hits + cache.misses();
+        return cache.stats().put("hitRatio", total == 0 ? 0.0 : (double) hits / total);
+    }
+
+    /**
+     * 注销event bus监听。
+     */
+    public void close() {
+        if (consumer != null) {
+            consumer.unregister();
+        }
+    }
+}
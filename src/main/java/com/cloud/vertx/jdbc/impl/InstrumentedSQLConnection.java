@@ -0,0 +1,219 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.JdbcMetrics;
+import com.cloud.vertx.jdbc.sql.SqlShape;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.sql.*;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * 记录执行指标的连接包装类，每条语句按归一化形状上报耗时、读取行数、影响行数和失败，
+ * 开启慢查询日志时同时检查执行时间。查询流只记录打开耗时。
+ *
+ * @author zhoudingyun
+ */
+public class InstrumentedSQLConnection implements SQLConnection {
+    private static final ToIntFunction<Object> NONE = r -> 0;
+    private static final ToIntFunction<ResultSet> ROWS = ResultSet::getNumRows;
+    private static final ToIntFunction<UpdateResult> UPDATED = UpdateResult::getUpdated;
+    private static final ToIntFunction<List<Integer>> BATCH = list -> {
+        int sum = 0;
+        for (Integer n : list) {
+            // Statement.SUCCESS_NO_INFO(-2)等负值不计入
+            if (n != null && n > 0) {
+                sum += n;
+            }
+        }
+        return sum;
+    };
+
+    private final SQLConnection delegate;
+    private final JdbcMetrics metrics;
+    private final SlowQueryLog slowQueryLog;
+    private final long waitNanos;
+
+    /**
+     * 构造方法。
+     *
+     * @param delegate     被包装的连接
+     * @param metrics      指标收集
+     * @param slowQueryLog 慢查询日志，可为null
+     * @param waitNanos    获取该连接的等待时间(纳秒)
+     */
+    public InstrumentedSQLConnection(SQLConnection delegate, JdbcMetrics metrics, SlowQueryLog slowQueryLog, long waitNanos) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+        this.slowQueryLog = slowQueryLog;
+        this.waitNanos = waitNanos;
+    }
+
+    /**
+     * 取出被包装的连接。
+     *
+     * @param connection 数据库连接
+     * @return 原始连接
+     */
+    public static SQLConnection unwrap(SQLConnection connection) {
+        return connection instanceof InstrumentedSQLConnection ? ((InstrumentedSQLConnection) connection).delegate : connection;
+    }
+
+    private <T> Handler<AsyncResult<T>> read(String sql, JsonArray arguments, ToIntFunction<? super T> rows, Handler<AsyncResult<T>> handler) {
+        return record(sql, arguments, rows, NONE, handler);
+    }
+
+    private <T> Handler<AsyncResult<T>> write(String sql, JsonArray arguments, ToIntFunction<? super T> rows, Handler<AsyncResult<T>> handler) {
+        return record(sql, arguments, NONE, rows, handler);
+    }
+
+    private <T> Handler<AsyncResult<T>> record(String sql, JsonArray arguments, ToIntFunction<? super T> read, ToIntFunction<? super T> written,
+                                               Handler<AsyncResult<T>> handler) {
+        long start = System.nanoTime();
+        return r -> {
+            long nanos = System.nanoTime() - start;
+            // 指标或慢查询日志出错时仍需回调，否则调用方永远等不到结果
+            try {
+                String shape = SqlShape.of(sql);
+                int rowsRead = 0;
+                int rowsWritten = 0;
+                if (r.succeeded() && r.result() != null) {
+                    rowsRead = read.applyAsInt(r.result());
+                    rowsWritten = written.applyAsInt(r.result());
+                }
+                metrics.statementExecuted(shape, nanos, rowsRead, rowsWritten, r.failed());
+                if (slowQueryLog != null) {
+                    slowQueryLog.executed(shape, sql, arguments, nanos, waitNanos, rowsRead + rowsWritten, r.failed());
+                }
+            } finally {
+                handler.handle(r);
+            }
+        };
+    }
+
+    @Override
+    public SQLConnection setOptions(SQLOptions options) {
+        delegate.setOptions(options);
+        return this;
+    }
+
+    @Override
+    public SQLConnection setAutoCommit(boolean autoCommit, Handler<AsyncResult<Void>> resultHandler) {
+        delegate.setAutoCommit(autoCommit, resultHandler);
+        return this;
+    }
+
+    @Override
+    public SQLConnection execute(String sql, Handler<AsyncResult<Void>> resultHandler) {
+        delegate.execute(sql, write(sql, null, NONE, resultHandler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection query(String sql, Handler<AsyncResult<ResultSet>> resultHandler) {
+        delegate.query(sql, read(sql, null, ROWS, resultHandler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection queryStream(String sql, Handler<AsyncResult<SQLRowStream>> handler) {
+        delegate.queryStream(sql, read(sql, null, NONE, handler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection queryWithParams(String sql, JsonArray params, Handler<AsyncResult<ResultSet>> resultHandler) {
+        delegate.queryWithParams(sql, params, read(sql, params, ROWS, resultHandler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection queryStreamWithParams(String sql, JsonArray params, Handler<AsyncResult<SQLRowStream>> handler) {
+        delegate.queryStreamWithParams(sql, params, read(sql, params, NONE, handler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection update(String sql, Handler<AsyncResult<UpdateResult>> resultHandler) {
+        delegate.update(sql, write(sql, null, UPDATED, resultHandler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection updateWithParams(String sql, JsonArray params, Handler<AsyncResult<UpdateResult>> resultHandler) {
+        delegate.updateWithParams(sql, params, write(sql, params, UPDATED, resultHandler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection call(String sql, Handler<AsyncResult<ResultSet>> resultHandler) {
+        delegate.call(sql, read(sql, null, ROWS, resultHandler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection callWithParams(String sql, JsonArray params, JsonArray outputs, Handler<AsyncResult<ResultSet>> resultHandler) {
+        delegate.callWithParams(sql, params, outputs, read(sql, params, ROWS, resultHandler));
+        return this;
+    }
+
+    @Override
+    public void close(Handler<AsyncResult<Void>> handler) {
+        delegate.close(handler);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public SQLConnection commit(Handler<AsyncResult<Void>> handler) {
+        delegate.commit(handler);
+        return this;
+    }
+
+    @Override
+    public SQLConnection rollback(Handler<AsyncResult<Void>> handler) {
+        delegate.rollback(handler);
+        return this;
+    }
+
+    @Override
+    public SQLConnection batch(List<String> sqlStatements, Handler<AsyncResult<List<Integer>>> handler) {
+        String sql = sqlStatements.isEmpty() ? "" : sqlStatements.get(0);
+        delegate.batch(sqlStatements, write(sql, null, BATCH, handler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection batchWithParams(String sqlStatement, List<JsonArray> args, Handler<AsyncResult<List<Integer>>> handler) {
+        delegate.batchWithParams(sqlStatement, args, write(sqlStatement, args.isEmpty() ? null : args.get(0), BATCH, handler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection batchCallableWithParams(String sqlStatement, List<JsonArray> inArgs, List<JsonArray> outArgs, Handler<AsyncResult<List<Integer>>> handler) {
+        delegate.batchCallableWithParams(sqlStatement, inArgs, outArgs, write(sqlStatement, inArgs.isEmpty() ? null : inArgs.get(0), BATCH, handler));
+        return this;
+    }
+
+    @Override
+    public SQLConnection setTransactionIsolation(TransactionIsolation isolation, Handler<AsyncResult<Void>> handler) {
+        delegate.setTransactionIsolation(isolation, handler);
+        return this;
+    }
+
+    @Override
+    public SQLConnection getTransactionIsolation(Handler<AsyncResult<TransactionIsolation>> handler) {
+        delegate.getTransactionIsolation(handler);
+        return this;
+    }
+
+    @Override
+    public <N> N unwrap() {
+        return delegate.unwrap();
+    }
+}
@@ -1,18 +1,38 @@
 package com.cloud.vertx.jdbc.impl;
 
 import com.cloud.vertx.jdbc.JdbcRepository;
+import com.cloud.vertx.jdbc.JdbcSession;
+import com.cloud.vertx.jdbc.JsonRowStream;
+import com.cloud.vertx.jdbc.KeysetPage;
+import com.cloud.vertx.jdbc.PageResult;
+import com.cloud.vertx.jdbc.RowMapper;
+import com.cloud.vertx.jdbc.enums.ExportFormat;
+import com.cloud.vertx.jdbc.util.LruCache;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.SQLOptions;
 import io.vertx.ext.sql.SQLRowStream;
 import io.vertx.ext.sql.UpdateResult;
 
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * JDBC操作统一接口实现类。
@@ -20,9 +40,209 @@ import java.util.List;
  * @author zhoudingyun
  */
 public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcRepository {
+    public static final int DEFAULT_COUNT_CACHE_SIZE = 1024;
+    public static final int DEFAULT_EXPORT_FETCH_SIZE = 1000;
+    public static final int DEFAULT_TRANSACTION_RETRIES = 3;
+    public static final long DEFAULT_TRANSACTION_RETRY_DELAY = 10;
+    public static final long DEFAULT_TRANSACTION_RETRY_MAX_DELAY = 1000;
+
+    /**
+     * 分页总数缓存，键为(count语句, 参数)，count_cache_ttl大于0时启用。
+     */
+    private final LruCache<List<Object>, Integer> countCache;
+    /**
+     * 主键实体缓存，配置了entity_cache时创建，否则为null。
+     */
+    protected final EntityCache entityCache;
+    /**
+     * 查询结果缓存，配置了result_cache时创建，否则为null，各表共用。
+     */
+    protected final ResultCache resultCache;
+    /**
+     * 相同查询合并，single_flight为true时创建，否则为null，各表共用。
+     */
+    protected final SingleFlight singleFlight;
+    /**
+     * inTransaction因死锁或序列化冲突失败时的重试次数和退避时间(毫秒)。
+     */
+    protected int transactionRetries;
+    protected long transactionRetryDelay;
+    protected long transactionRetryMaxDelay;
 
     public JdbcRepositoryImpl(Vertx vertx, JsonObject config, String tableName) {
         super(vertx, config, tableName);
+        long countCacheTtl = config.getLong("count_cache_ttl", 0L);
+        this.countCache = countCacheTtl > 0 ? new LruCache<>(config.getInteger("count_cache_size", DEFAULT_COUNT_CACHE_SIZE), countCacheTtl) : null;
+        this.entityCache = entityCache(vertx, config, tableName);
+        JsonObject resultCache = config.getJsonObject("result_cache");
+        this.resultCache = resultCache == null ? null : new ResultCache(resultCache);
+        this.singleFlight = config.getBoolean("single_flight", false) ? new SingleFlight() : null;
+        this.transactionRetries = config.getInteger("transaction_retries", DEFAULT_TRANSACTION_RETRIES);
+        this.transactionRetryDelay = config.getLong("transaction_retry_delay", DEFAULT_TRANSACTION_RETRY_DELAY);
+        this.transactionRetryMaxDelay = config.getLong("transaction_retry_max_delay", DEFAULT_TRANSACTION_RETRY_MAX_DELAY);
+    }
+
+    /**
+     * 构造方法，与other共用连接池和sql缓存。
+     *
+     * @param other 已创建的repository
+     */
+    protected JdbcRepositoryImpl(JdbcRepositoryImpl other) {
+        super(other);
+        this.countCache = other.countCache;
+        this.entityCache = other.entityCache;
+        this.resultCache = other.resultCache;
+        this.singleFlight = other.singleFlight;
+        this.transactionRetries = other.transactionRetries;
+        this.transactionRetryDelay = other.transactionRetryDelay;
+        this.transactionRetryMaxDelay = other.transactionRetryMaxDelay;
+    }
+
+    /**
+     * 构造方法，与other共用连接池和缓存，操作另一张表。
+     *
+     * @param other     已创建的repository
+     * @param tableName 表名
+     */
+    protected JdbcRepositoryImpl(JdbcRepositoryImpl other, String tableName) {
+        super(other, tableName);
+        this.countCache = other.countCache;
+        this.entityCache = entityCache(vertx, config, tableName);
+        this.resultCache = other.resultCache;
+        this.singleFlight = other.singleFlight;
+        this.transactionRetries = other.transactionRetries;
+        this.transactionRetryDelay = other.transactionRetryDelay;
+        this.transactionRetryMaxDelay = other.transactionRetryMaxDelay;
+    }
+
+    private static EntityCache entityCache(Vertx vertx, JsonObject config, String tableName) {
+        JsonObject entityCache = config.getJsonObject("entity_cache");
+        return entityCache == null || tableName == null ? null : new EntityCache(vertx, tableName, entityCache);
+    }
+
+    /**
+     * 实体缓存统计信息，未开启时返回空对象。
+     *
+     * @return {size, maxSize, hits, misses, hitRatio, evictions, expirations}
+     */
+    @Override
+    public JsonObject entityCacheStats() {
+        return entityCache == null ? new JsonObject() : entityCache.stats();
+    }
+
+    /**
+     * 查询是否读写实体缓存、结果缓存以及合并相同查询，会话内的查询可能读到未提交的数据，直接读库。
+     *
+     * @return boolean
+     */
+    protected boolean useCache() {
+        return true;
+    }
+
+    /**
+     * 结果缓存统计信息，未开启时返回空对象。
+     *
+     * @return {size, bytes, maxBytes, hits, misses, hitRatio, evictions, invalidations}
+     */
+    @Override
+    public JsonObject resultCacheStats() {
+        return resultCache == null ? new JsonObject() : resultCache.stats();
+    }
+
+    /**
+     * 相同查询合并统计信息，未开启时返回空对象。
+     *
+     * @return {inFlight, executed, shared}
+     */
+    @Override
+    public JsonObject singleFlightStats() {
+        return singleFlight == null ? new JsonObject() : singleFlight.stats();
+    }
+
+    /**
+     * 合并正在执行中的相同查询，键包含表名，共用的各表之间不会串用结果。
+     *
+     * @param key  查询键
+     * @param copy 结果复制函数
+     * @param call 实际查询
+     * @param <T>  结果类型
+     * @return Future<T>
+     */
+    private <T> Future<T> coalesce(List<Object> key, Function<T, T> copy, Supplier<Future<T>> call) {
+        if (singleFlight == null || !useCache()) {
+            return call.get();
+        }
+        // 条件和参数可能在查询期间被调用方修改，键使用副本
+        List<Object> frozen = new ArrayList<>(key.size());
+        for (Object o : key) {
+            frozen.add(o instanceof JsonObject ? ((JsonObject) o).copy() : o instanceof JsonArray ? ((JsonArray) o).copy() : o);
+        }
+        return singleFlight.execute(frozen, call, copy);
+    }
+
+    /**
+     * 写入之前开始的相同查询不再合并，写入方随后的读取重新查询。
+     */
+    private void invalidateFlights() {
+        if (singleFlight != null) {
+            singleFlight.invalidate();
+        }
+    }
+
+    /**
+     * 写操作成功后按条件失效实体缓存，并失效本表的结果缓存。
+     *
+     * @param where 条件 -> {id: 1}
+     */
+    protected void invalidate(JsonObject where) {
+        invalidateFlights();
+        if (entityCache != null) {
+            entityCache.invalidate(where);
+        }
+        if (resultCache != null) {
+            resultCache.invalidate(tableName());
+        }
+    }
+
+    /**
+     * 写操作成功后按条件失效实体缓存，并失效本表的结果缓存。
+     *
+     * @param where     条件 -> "id = ?"
+     * @param arguments 参数 -> [1]
+     */
+    protected void invalidate(String where, JsonArray arguments) {
+        invalidateFlights();
+        if (entityCache != null) {
+            entityCache.invalidate(where, arguments);
+        }
+        if (resultCache != null) {
+            resultCache.invalidate(tableName());
+        }
+    }
+
+    /**
+     * 新增成功后失效本表的结果缓存，实体缓存不缓存不存在的记录，无需失效。
+     */
+    protected void invalidateInserted() {
+        invalidateFlights();
+        if (resultCache != null) {
+            resultCache.invalidate(tableName());
+        }
+    }
+
+    /**
+     * 执行原始sql成功后失效实体缓存和语句涉及表的结果缓存。
+     *
+     * @param sql sql语句
+     */
+    protected void invalidateSql(String sql) {
+        invalidateFlights();
+        if (entityCache != null) {
+            entityCache.invalidateSql(sql);
+        }
+        if (resultCache != null) {
+            resultCache.invalidateSql(sql);
+        }
     }
 
     /**
@@ -34,14 +254,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<Void> execute(String sql) {
         Promise<Void> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             execute(connection, sql, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -57,14 +278,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> query(String sql) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             query(connection, sql, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -80,14 +301,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<SQLRowStream> queryStream(String sql) {
         Promise<SQLRowStream> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             queryStream(connection, sql, r -> {
                 if (r.succeeded()) {
-                    promise.complete(r.result());
+                    promise.complete(new ConnectionRowStream(r.result(), () -> release(connection)));
                 } else {
                     promise.fail(r.cause());
+                    release(connection);
                 }
-                connection.close();
             });
         }));
         return promise.future();
@@ -104,14 +325,119 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> queryWithParams(String sql, JsonArray arguments) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             queryWithParams(connection, sql, arguments, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
+            });
+        }));
+        return promise.future();
+    }
+
+    /**
+     * 根据参数查询多条记录，按列下标映射为对象，不生成中间JsonObject。
+     *
+     * @param sql       sql语句 -> select id, name from user where status=?
+     * @param arguments 参数 -> [1]
+     * @param mapper    行映射函数 -> row -> new User(row.getLong(0), row.getString(1))
+     * @return Future<List < T>>
+     */
+    @Override
+    public <T> Future<List<T>> query(String sql, JsonArray arguments, RowMapper<T> mapper) {
+        Promise<List<T>> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            query(connection, sql, arguments, mapper, r -> {
+                promise.handle(r);
+                release(connection);
+            });
+        }));
+        return promise.future();
+    }
+
+    /**
+     * 根据参数查询多条记录，结果按(sql, 参数)缓存，语句涉及的表经本repository写入后失效。
+     * 未配置result_cache时与 {@link #queryWithParams(String, JsonArray)} 相同。
+     *
+     * @param sql       sql语句 -> select status, count(1) c from user where dept=? group by status
+     * @param arguments 参数 -> [1]
+     * @return Future<List < JsonObject>>
+     */
+    @Override
+    public Future<List<JsonObject>> queryCached(String sql, JsonArray arguments) {
+        return cached(sql, arguments).map(ResultSet::getRows);
+    }
+
+    /**
+     * 根据参数查询多条记录并逐行映射，结果按(sql, 参数)缓存。
+     *
+     * @param sql       sql语句
+     * @param arguments 参数
+     * @param mapper    行映射函数，传入的行是缓存的副本
+     * @return Future<List < T>>
+     */
+    @Override
+    public <T> Future<List<T>> queryCached(String sql, JsonArray arguments, RowMapper<T> mapper) {
+        return cached(sql, arguments).map(resultSet -> RowMapper.mapAll(resultSet, mapper));
+    }
+
+    private Future<ResultSet> cached(String sql, JsonArray arguments) {
+        List<Object> key = resultCache != null && useCache() ? ResultCache.key(sql, arguments) : null;
+        if (key != null) {
+            ResultSet cached = resultCache.get(key);
+            if (cached != null) {
+                return Future.succeededFuture(cached);
+            }
+        }
+        return coalesce(Arrays.asList("queryCached", sql, arguments), JdbcRepositoryImpl::copy, () -> {
+            long[] versions = key == null ? null : resultCache.versions(sql);
+            Promise<ResultSet> promise = Promise.promise();
+            // 结果要放入缓存时读主库，从库延迟期间的旧数据不会在ttl内一直被命中
+            Handler<AsyncResult<SQLConnection>> handler = connHandler(promise, connection -> {
+                queryWithParams(connection, sql, arguments, r -> {
+                    if (r.succeeded() && key != null) {
+                        resultCache.put(key, sql, r.result(), versions);
+                    }
+                    promise.handle(r);
+                    release(connection);
+                });
+            });
+            if (key == null) {
+                acquireRead(handler);
+            } else {
+                acquire(handler);
+            }
+            return promise.future();
+        });
+    }
+
+    /**
+     * 复制共享的查询结果，各调用方拿到互不影响的行。
+     */
+    private static ResultSet copy(ResultSet resultSet) {
+        List<String> columns = resultSet.getColumnNames() == null ? null : new ArrayList<>(resultSet.getColumnNames());
+        ResultSet next = resultSet.getNext() == null ? null : copy(resultSet.getNext());
+        return new ResultSet(columns, ResultCache.copy(resultSet.getResults()), next);
+    }
+
+    /**
+     * 根据参数查询多条记录，按列名映射为JavaBean。
+     *
+     * @param sql       sql语句 -> select id, user_name from user where status=?
+     * @param arguments 参数 -> [1]
+     * @param type      结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    @Override
+    public <T> Future<List<T>> query(String sql, JsonArray arguments, Class<T> type) {
+        Promise<List<T>> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            query(connection, sql, arguments, type).onComplete(r -> {
+                promise.handle(r);
+                release(connection);
             });
         }));
         return promise.future();
@@ -128,19 +454,119 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<SQLRowStream> queryStreamWithParams(String sql, JsonArray arguments) {
         Promise<SQLRowStream> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             queryStreamWithParams(connection, sql, arguments, r -> {
                 if (r.succeeded()) {
-                    promise.complete(r.result());
+                    promise.complete(new ConnectionRowStream(r.result(), () -> release(connection)));
                 } else {
                     promise.fail(r.cause());
+                    release(connection);
+                }
+            });
+        }));
+        return promise.future();
+    }
+
+    /**
+     * 流式导出查询结果，行直接编码为CSV/NDJSON写入target，写队列满时暂停读取。
+     * 每次从数据库读取export_fetch_size行，每export_buffer_size字符写出一次。
+     * 导出期间关闭自动提交，使PostgreSQL使用游标；MySQL需在url中开启useCursorFetch=true，否则驱动把整个结果集读入内存。
+     *
+     * @param sql       sql语句 -> select * from user where status =?
+     * @param arguments 参数 -> [1]
+     * @param format    导出格式 -> Csv | Ndjson
+     * @param target    目标流 -> AsyncFile | HttpServerResponse
+     * @return Future<JsonObject> -> {rows, bytes, millis, rowsPerSecond}
+     */
+    @Override
+    public Future<JsonObject> export(String sql, JsonArray arguments, ExportFormat format, WriteStream<Buffer> target) {
+        return export(sql, arguments, format, target, null);
+    }
+
+    /**
+     * 流式导出查询结果，导出过程中最多每秒回调一次进度。
+     *
+     * @param sql       sql语句 -> select * from user where status =?
+     * @param arguments 参数 -> [1]
+     * @param format    导出格式 -> Csv | Ndjson
+     * @param target    目标流 -> AsyncFile | HttpServerResponse
+     * @param progress  进度回调 -> {rows, bytes, millis, rowsPerSecond}
+     * @return Future<JsonObject> -> {rows, bytes, millis, rowsPerSecond}
+     */
+    @Override
+    public Future<JsonObject> export(String sql, JsonArray arguments, ExportFormat format, WriteStream<Buffer> target, Handler<JsonObject> progress) {
+        int fetchSize = config.getInteger("export_fetch_size", DEFAULT_EXPORT_FETCH_SIZE);
+        int bufferSize = config.getInteger("export_buffer_size", RowExporter.DEFAULT_BUFFER_SIZE);
+        Promise<JsonObject> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            cursorStream(connection, sql, arguments, fetchSize, r -> {
+                if (r.failed()) {
+                    promise.fail(r.cause());
+                    return;
+                }
+                SQLRowStream stream = r.result();
+                try {
+                    new RowExporter(stream, target, format, bufferSize, progress).start().onComplete(promise);
+                } catch (RuntimeException e) {
+                    stream.close();
+                    promise.fail(e);
                 }
-                connection.close();
             });
         }));
         return promise.future();
     }
 
+    /**
+     * 打开按fetchSize分批读取的查询流，流结束、出错或关闭后归还连接。
+     * PostgreSQL只在关闭自动提交时使用游标，否则驱动把整个结果集读入内存，
+     * 因此不在事务内时临时关闭自动提交，流结束后回滚(只读)并恢复自动提交，再归还连接。
+     * MySQL还需在url中开启useCursorFetch=true。
+     *
+     * @param connection 数据库连接，失败时已归还
+     * @param fetchSize  每次从数据库读取的行数，小于等于0时使用驱动默认值
+     */
+    private void cursorStream(SQLConnection connection, String sql, JsonArray arguments, int fetchSize, Handler<AsyncResult<SQLRowStream>> handler) {
+        if (fetchSize <= 0 || transactional()) {
+            openStream(connection, sql, arguments, fetchSize, () -> release(connection), handler);
+            return;
+        }
+        Runnable restore = () -> connection.rollback(rb -> connection.setAutoCommit(true, ac -> release(connection)));
+        connection.setAutoCommit(false, begin -> {
+            if (begin.failed()) {
+                handler.handle(Future.failedFuture(begin.cause()));
+                connection.setAutoCommit(true, ac -> release(connection));
+                return;
+            }
+            openStream(connection, sql, arguments, fetchSize, restore, handler);
+        });
+    }
+
+    private void openStream(SQLConnection connection, String sql, JsonArray arguments, int fetchSize, Runnable release, Handler<AsyncResult<SQLRowStream>> handler) {
+        if (fetchSize > 0) {
+            connection.setOptions(new SQLOptions().setFetchSize(fetchSize));
+        }
+        queryStreamWithParams(connection, sql, arguments, r -> {
+            if (fetchSize > 0) {
+                connection.setOptions(null);
+            }
+            if (r.succeeded()) {
+                handler.handle(Future.succeededFuture(new ConnectionRowStream(r.result(), release)));
+            } else {
+                handler.handle(Future.failedFuture(r.cause()));
+                release.run();
+            }
+        });
+    }
+
+    /**
+     * 连接是否已在事务内(自动提交已关闭)，会话在inTransaction内时为true。
+     *
+     * @return boolean
+     */
+    protected boolean transactional() {
+        return false;
+    }
+
     /**
      * 查询单条记录。
      * select * from user where id=1
@@ -151,14 +577,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<JsonArray> querySingle(String sql) {
         Promise<JsonArray> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             querySingle(connection, sql, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -175,14 +601,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<JsonArray> querySingleWithParams(String sql, JsonArray arguments) {
         Promise<JsonArray> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             querySingleWithParams(connection, sql, arguments, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -198,26 +624,16 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
      */
     @Override
     public Future<JsonObject> queryOneWithParams(String sql, JsonArray arguments) {
-        Promise<JsonObject> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            queryWithParams(connection, sql, arguments, r -> {
-                if (r.succeeded()) {
-                    ResultSet rs = r.result();
-
-                    ResultSet newxt = rs.getNext();
-                    List<JsonObject> resList = r.result().getRows();
-                    if (resList == null || resList.isEmpty()) {
-                        promise.complete(null);
-                    } else {
-                        promise.complete(resList.get(0));
-                    }
-                } else {
-                    promise.fail(r.cause());
-                }
-                connection.close();
-            });
-        }));
-        return promise.future();
+        return coalesce(Arrays.asList("queryOne", sql, arguments), JsonObject::copy, () -> {
+            Promise<JsonObject> promise = Promise.promise();
+            acquireRead(connHandler(promise, connection -> {
+                queryOneWithParams(connection, sql, arguments, r -> {
+                    promise.handle(r);
+                    release(connection);
+                });
+            }));
+            return promise.future();
+        });
     }
 
     /**
@@ -233,16 +649,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> queryPageWithParams(String sql, JsonArray arguments, int page, int limit) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        arguments.add(calcPage(page, limit)).add(limit);
-        client.getConnection(connHandler(promise, connection -> {
-            queryWithParams(connection, sql, arguments, r -> {
+        acquireRead(connHandler(promise, connection -> {
+            queryPageWithParams(connection, sql, arguments, page, limit, r -> {
                 if (r.succeeded()) {
                     List<JsonObject> resList = r.result().getRows();
                     promise.complete(resList);
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -259,7 +674,7 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<Integer> queryCountWithParams(String sql, JsonArray arguments) {
         Promise<Integer> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             queryWithParams(connection, sql, arguments, r -> {
                 if (r.succeeded()) {
                     List<JsonArray> resList = r.result().getResults();
@@ -267,7 +682,7 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
                 } else {
                     promise.handle(Future.failedFuture(r.cause()));
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -283,14 +698,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<UpdateResult> update(String sql) {
         Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             update(connection, sql, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -307,14 +723,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<UpdateResult> updateWithParams(String sql, JsonArray arguments) {
         Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             updateWithParams(connection, sql, arguments, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -330,14 +747,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> call(String sql) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             call(connection, sql, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -354,14 +772,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> callWithParams(String sql, JsonArray arguments1, JsonArray arguments2) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             callWithParams(connection, sql, arguments1, arguments2, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -376,14 +795,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<Integer>> batch(List<String> sql) {
         Promise<List<Integer>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             batch(connection, sql, r -> {
                 if (r.succeeded()) {
+                    sql.forEach(this::invalidateSql);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -399,14 +819,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<Integer>> batchWithParams(String sql, List<JsonArray> arguments) {
         Promise<List<Integer>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             batchWithParams(connection, sql, arguments, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -423,14 +844,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<Integer>> batchCallableWithParams(String sql, List<JsonArray> arguments1, List<JsonArray> arguments2) {
         Promise<List<Integer>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             batchCallableWithParams(connection, sql, arguments1, arguments2, r -> {
                 if (r.succeeded()) {
+                    invalidateSql(sql);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
         return promise.future();
@@ -446,14 +868,15 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<UpdateResult> create(JsonObject values) {
         Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquire(connHandler(promise, connection -> {
             create(connection, values, r -> {
                 if (r.succeeded()) {
+                    invalidateInserted();
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -461,25 +884,23 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     }
 
     /**
-     * 修改。
-     * update user set name='张三', sex ='1' where id =1 and uuid='abc'
+     * 新增并返回指定列，方言支持时一条语句完成，否则使用驱动返回的自增主键。
+     * insert into user(name,uuid) values('张三', 'abc') returning id, created_at
      *
-     * @param sets           sets -> {name='张三', sex ='1'}
-     * @param where          where -> "id =? and uuid=?"
-     * @param whereArguments whereArguments -> [1,'abc']
-     * @return Future<UpdateResult>
+     * @param values  参数 -> {name='张三'，uuid='abc'}
+     * @param columns 返回列 -> [id, created_at]
+     * @return Future<JsonObject> -> {id=1, created_at='2020-01-01 00:00:00'}
      */
     @Override
-    public Future<UpdateResult> update(JsonObject sets, String where, JsonArray whereArguments) {
-        Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            update(connection, sets, where, whereArguments, r -> {
+    public Future<JsonObject> createReturning(JsonObject values, JsonArray columns) {
+        Promise<JsonObject> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            createReturning(connection, values, columns, r -> {
                 if (r.succeeded()) {
-                    promise.complete(r.result());
-                } else {
-                    promise.fail(r.cause());
+                    invalidateInserted();
                 }
-                connection.close();
+                promise.handle(r);
+                release(connection);
             });
         }));
 
@@ -487,74 +908,63 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     }
 
     /**
-     * 修改。
-     * update user set name='张三', sex ='1' where id =1 and uuid='abc'
+     * 在事务内批量新增，每条语句最多插入 insert_chunk_size 行。
+     * insert into user(name,uuid) values('张三', 'abc'), ('李四', 'def')
      *
-     * @param sets  sets -> {name='张三', sex ='1'}
-     * @param where 条件 -> {id='1'，uuid='abc'}
-     * @return Future<UpdateResult>
+     * @param rows 参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @return Future<Integer> 新增总行数
      */
     @Override
-    public Future<UpdateResult> update(JsonObject sets, JsonObject where) {
-        Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            update(connection, sets, where);
-            update(connection, sets, where, r -> {
-                if (r.succeeded()) {
-                    promise.complete(r.result());
-                } else {
-                    promise.fail(r.cause());
-                }
-                connection.close();
-            });
-        }));
-
-        return promise.future();
+    public Future<Integer> createAll(List<JsonObject> rows) {
+        return createAll(rows, insertChunkSize);
     }
 
     /**
-     * 删除.
-     * delete from user where id=1 and uuid='abc'
+     * 在事务内批量新增。
+     * insert into user(name,uuid) values('张三', 'abc'), ('李四', 'def')
      *
-     * @param where          where -> "id =? and uuid=?"
-     * @param whereArguments 条件 -> [1,'abc']
-     * @return Future<UpdateResult>
+     * @param rows      参数 -> [{name='张三'，uuid='abc'}, {name='李四'，uuid='def'}]
+     * @param chunkSize 每条语句最多插入行数 -> 500
+     * @return Future<Integer> 新增总行数
      */
     @Override
-    public Future<UpdateResult> delete(String where, JsonArray whereArguments) {
-        Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            delete(connection, where, whereArguments, r -> {
+    public Future<Integer> createAll(List<JsonObject> rows, int chunkSize) {
+        if (rows.isEmpty()) {
+            return Future.succeededFuture(0);
+        }
+        Promise<Integer> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            transaction(connection, conn -> createAll(conn, rows, chunkSize)).onComplete(r -> {
                 if (r.succeeded()) {
-                    promise.complete(r.result());
-                } else {
-                    promise.fail(r.cause());
+                    invalidateInserted();
                 }
-                connection.close();
+                promise.handle(r);
+                release(connection);
             });
         }));
-
         return promise.future();
     }
 
     /**
-     * 删除.
-     * delete from user where id=1 and uuid='abc'
+     * 新增或按冲突列更新，一条语句完成，语法由upsert_syntax决定。
+     * insert into user(id, name) values(1, '张三') on duplicate key update name = values(name)
      *
-     * @param where 条件 -> {id='1'，uuid='abc'}
+     * @param values       参数 -> {id=1, name='张三'}
+     * @param conflictKeys 冲突列 -> [id]，需包含在values中
      * @return Future<UpdateResult>
      */
     @Override
-    public Future<UpdateResult> delete(JsonObject where) {
+    public Future<UpdateResult> upsert(JsonObject values, JsonArray conflictKeys) {
         Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            delete(connection, where, r -> {
+        acquire(connHandler(promise, connection -> {
+            upsert(connection, values, conflictKeys, r -> {
                 if (r.succeeded()) {
+                    invalidate(conflictWhere(values, conflictKeys));
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -562,77 +972,131 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     }
 
     /**
-     * 查询单条数据.
-     * select id, name ,uuid from user where id=1 and uuid='abc'
+     * 在事务内批量新增或更新，每条语句最多 insert_chunk_size 行。
+     * insert into user(id, name) values(1, '张三'), (2, '李四') on duplicate key update name = values(name)
      *
-     * @param where          where -> "id =? and uuid=?"
-     * @param whereArguments 条件 -> [1,'abc']
-     * @param columns        columns -> "id, name ,uuid"
-     * @return Future<JsonObject>
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @return Future<Integer> 驱动返回的影响行数之和
      */
     @Override
-    public Future<JsonObject> findOne(String where, JsonArray whereArguments, JsonArray columns) {
-        Promise<JsonObject> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            findOne(connection, where, whereArguments, columns, r -> {
-                if (r.succeeded()) {
-                    promise.complete(r.result());
-                } else {
-                    promise.fail(r.cause());
-                }
-                connection.close();
-            });
-        }));
-
-        return promise.future();
+    public Future<Integer> upsertAll(List<JsonObject> rows, JsonArray conflictKeys) {
+        return upsertAll(rows, conflictKeys, insertChunkSize);
     }
 
     /**
-     * 查询单条数据
-     * select id, name ,uuid from user where id=1 and uuid='abc'
+     * 在事务内批量新增或更新。
+     * insert into user(id, name) values(1, '张三'), (2, '李四') on duplicate key update name = values(name)
      *
-     * @param where   where -> {id=1, uuid='abc'}
-     * @param columns columns -> "id, name ,uuid"
-     * @return Future<JsonObject>
+     * @param rows         参数 -> [{id=1, name='张三'}, {id=2, name='李四'}]
+     * @param conflictKeys 冲突列 -> [id]
+     * @param chunkSize    每条语句最多行数 -> 500
+     * @return Future<Integer> 驱动返回的影响行数之和
      */
     @Override
-    public Future<JsonObject> findOne(JsonObject where, JsonArray columns) {
-        Promise<JsonObject> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            findOne(connection, where, columns, r -> {
+    public Future<Integer> upsertAll(List<JsonObject> rows, JsonArray conflictKeys, int chunkSize) {
+        if (rows.isEmpty()) {
+            return Future.succeededFuture(0);
+        }
+        Promise<Integer> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            transaction(connection, conn -> upsertAll(conn, rows, conflictKeys, chunkSize)).onComplete(r -> {
                 if (r.succeeded()) {
-                    promise.complete(r.result());
-                } else {
-                    promise.fail(r.cause());
+                    // 单行按冲突列失效，多行失效整张表
+                    invalidate(rows.size() == 1 ? conflictWhere(rows.get(0), conflictKeys) : null);
                 }
-                connection.close();
+                promise.handle(r);
+                release(connection);
             });
         }));
-
         return promise.future();
     }
 
     /**
-     * 查询单条数据排序取第一条
-     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     * 流式批量导入，行按batchSize攒成jdbc批处理执行，批执行期间暂停数据源，每commitEvery批提交一次。
+     * 某批失败时回滚未提交的批并停止，已提交的批保留。
      *
-     * @param where          where -> "name =? and uuid=?"
-     * @param whereArguments whereArguments -> ['张三','abc']
-     * @param orderBy        orderBy -> "name desc, uuid asc"
-     * @param columns        columns -> "id, name ,uuid"
-     * @return Future<JsonObject>
+     * @param rows        数据源 -> 按行解析的文件、消息流，列名即表的列名
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10，小于等于0时全部写入后提交一次
+     * @return Future<JsonObject> -> {batches, rows, committed, millis, rowsPerSecond}
      */
     @Override
-    public Future<JsonObject> findOneOrder(String where, JsonArray whereArguments, String orderBy, JsonArray columns) {
+    public Future<JsonObject> importStream(ReadStream<JsonObject> rows, int batchSize, int commitEvery) {
+        return importStream(rows, batchSize, commitEvery, null);
+    }
+
+    /**
+     * 流式批量导入，每批完成后回调进度。
+     *
+     * @param rows        数据源
+     * @param batchSize   每批行数 -> 1000
+     * @param commitEvery 每多少批提交一次 -> 10
+     * @param progress    进度回调 -> {batch, batchRows, rows, committed, millis, rowsPerSecond[, error]}
+     * @return Future<JsonObject> -> {batches, rows, committed, millis, rowsPerSecond}
+     */
+    @Override
+    public Future<JsonObject> importStream(ReadStream<JsonObject> rows, int batchSize, int commitEvery, Handler<JsonObject> progress) {
+        try {
+            StreamImporter.checkBatchSize(batchSize);
+        } catch (IllegalArgumentException e) {
+            // 参数不合法时不暂停数据源，也不获取连接
+            return Future.failedFuture(e);
+        }
         Promise<JsonObject> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            findOneOrder(connection, where, whereArguments, orderBy, columns, r -> {
+        // 获取连接期间暂停数据源，避免丢行
+        rows.pause();
+        acquire(this.<JsonObject>connHandler(failed -> {
+            // 获取连接失败时导入未开始，恢复数据源
+            rows.resume();
+            promise.handle(failed);
+        }, connection -> {
+            importStream(connection, rows, batchSize, commitEvery, progress, r -> {
+                // 失败时之前的批可能已提交
+                invalidateInserted();
+                promise.handle(r);
+                release(connection);
+            });
+        }));
+        return promise.future();
+    }
+
+    /**
+     * 冲突列及其值，冲突列为主键时实体缓存只失效该主键。
+     */
+    private static JsonObject conflictWhere(JsonObject values, JsonArray conflictKeys) {
+        JsonObject where = new JsonObject();
+        for (String name : values.fieldNames()) {
+            for (Object key : conflictKeys) {
+                if (name.equalsIgnoreCase(String.valueOf(key))) {
+                    where.put(name, values.getValue(name));
+                }
+            }
+        }
+        return where;
+    }
+
+    /**
+     * 修改。
+     * update user set name='张三', sex ='1' where id =1 and uuid='abc'
+     *
+     * @param sets           sets -> {name='张三', sex ='1'}
+     * @param where          where -> "id =? and uuid=?"
+     * @param whereArguments whereArguments -> [1,'abc']
+     * @return Future<UpdateResult>
+     */
+    @Override
+    public Future<UpdateResult> update(JsonObject sets, String where, JsonArray whereArguments) {
+        Promise<UpdateResult> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            update(connection, sets, where, whereArguments, r -> {
                 if (r.succeeded()) {
+                    invalidate(where, whereArguments);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -640,31 +1104,211 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     }
 
     /**
-     * 查询单条数据排序取第一条
-     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     * 修改。
+     * update user set name='张三', sex ='1' where id =1 and uuid='abc'
      *
-     * @param where   where -> {name='张三', uuid='abc'}
-     * @param orderBy orderBy -> "name desc, uuid asc"
-     * @param columns columns -> "id, name ,uuid"
-     * @return Future<JsonObject>
+     * @param sets  sets -> {name='张三', sex ='1'}
+     * @param where 条件 -> {id='1'，uuid='abc'}
+     * @return Future<UpdateResult>
      */
     @Override
-    public Future<JsonObject> findOneOrder(JsonObject where, String orderBy, JsonArray columns) {
-        Promise<JsonObject> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            findOneOrder(connection, where, orderBy, columns, r -> {
+    public Future<UpdateResult> update(JsonObject sets, JsonObject where) {
+        Promise<UpdateResult> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            update(connection, sets, where, r -> {
+                if (r.succeeded()) {
+                    invalidate(where);
+                    promise.complete(r.result());
+                } else {
+                    promise.fail(r.cause());
+                }
+                release(connection);
+            });
+        }));
+
+        return promise.future();
+    }
+
+    /**
+     * 删除.
+     * delete from user where id=1 and uuid='abc'
+     *
+     * @param where          where -> "id =? and uuid=?"
+     * @param whereArguments 条件 -> [1,'abc']
+     * @return Future<UpdateResult>
+     */
+    @Override
+    public Future<UpdateResult> delete(String where, JsonArray whereArguments) {
+        Promise<UpdateResult> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            delete(connection, where, whereArguments, r -> {
                 if (r.succeeded()) {
+                    invalidate(where, whereArguments);
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
         return promise.future();
     }
 
+    /**
+     * 删除.
+     * delete from user where id=1 and uuid='abc'
+     *
+     * @param where 条件 -> {id='1'，uuid='abc'}
+     * @return Future<UpdateResult>
+     */
+    @Override
+    public Future<UpdateResult> delete(JsonObject where) {
+        Promise<UpdateResult> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            delete(connection, where, r -> {
+                if (r.succeeded()) {
+                    invalidate(where);
+                    promise.complete(r.result());
+                } else {
+                    promise.fail(r.cause());
+                }
+                release(connection);
+            });
+        }));
+
+        return promise.future();
+    }
+
+    /**
+     * 查询单条数据.
+     * select id, name ,uuid from user where id=1 and uuid='abc'
+     *
+     * @param where          where -> "id =? and uuid=?"
+     * @param whereArguments 条件 -> [1,'abc']
+     * @param columns        columns -> "id, name ,uuid"
+     * @return Future<JsonObject>
+     */
+    @Override
+    public Future<JsonObject> findOne(String where, JsonArray whereArguments, JsonArray columns) {
+        return coalesce(Arrays.asList("findOne", tableName(), where, whereArguments, columns), JsonObject::copy, () -> {
+            Promise<JsonObject> promise = Promise.promise();
+            acquireRead(connHandler(promise, connection -> {
+                findOne(connection, where, whereArguments, columns, r -> {
+                    if (r.succeeded()) {
+                        promise.complete(r.result());
+                    } else {
+                        promise.fail(r.cause());
+                    }
+                    release(connection);
+                });
+            }));
+
+            return promise.future();
+        });
+    }
+
+    /**
+     * 查询单条数据
+     * select id, name ,uuid from user where id=1 and uuid='abc'
+     *
+     * @param where   where -> {id=1, uuid='abc'}
+     * @param columns columns -> "id, name ,uuid"
+     * @return Future<JsonObject>
+     */
+    @Override
+    public Future<JsonObject> findOne(JsonObject where, JsonArray columns) {
+        Object key = entityCache != null && useCache() ? entityCache.key(where, columns) : null;
+        if (key != null) {
+            JsonObject cached = entityCache.get(key);
+            if (cached != null) {
+                return Future.succeededFuture(cached);
+            }
+        }
+        return coalesce(Arrays.asList("findOne", tableName(), where, columns), JsonObject::copy, () -> {
+            long generation = key != null ? entityCache.generation() : 0;
+            Promise<JsonObject> promise = Promise.promise();
+            // 结果要放入缓存时读主库，从库延迟期间的旧数据不会在ttl内一直被命中
+            Handler<AsyncResult<SQLConnection>> handler = connHandler(promise, connection -> {
+                findOne(connection, where, columns, r -> {
+                    if (r.succeeded()) {
+                        if (key != null) {
+                            entityCache.put(key, r.result(), generation);
+                        }
+                        promise.complete(r.result());
+                    } else {
+                        promise.fail(r.cause());
+                    }
+                    release(connection);
+                });
+            });
+            if (key == null) {
+                acquireRead(handler);
+            } else {
+                acquire(handler);
+            }
+
+            return promise.future();
+        });
+    }
+
+    /**
+     * 查询单条数据排序取第一条
+     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param orderBy        orderBy -> "name desc, uuid asc"
+     * @param columns        columns -> "id, name ,uuid"
+     * @return Future<JsonObject>
+     */
+    @Override
+    public Future<JsonObject> findOneOrder(String where, JsonArray whereArguments, String orderBy, JsonArray columns) {
+        return coalesce(Arrays.asList("findOneOrder", tableName(), where, whereArguments, orderBy, columns), JsonObject::copy, () -> {
+            Promise<JsonObject> promise = Promise.promise();
+            acquireRead(connHandler(promise, connection -> {
+                findOneOrder(connection, where, whereArguments, orderBy, columns, r -> {
+                    if (r.succeeded()) {
+                        promise.complete(r.result());
+                    } else {
+                        promise.fail(r.cause());
+                    }
+                    release(connection);
+                });
+            }));
+
+            return promise.future();
+        });
+    }
+
+    /**
+     * 查询单条数据排序取第一条
+     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     *
+     * @param where   where -> {name='张三', uuid='abc'}
+     * @param orderBy orderBy -> "name desc, uuid asc"
+     * @param columns columns -> "id, name ,uuid"
+     * @return Future<JsonObject>
+     */
+    @Override
+    public Future<JsonObject> findOneOrder(JsonObject where, String orderBy, JsonArray columns) {
+        return coalesce(Arrays.asList("findOneOrder", tableName(), where, orderBy, columns), JsonObject::copy, () -> {
+            Promise<JsonObject> promise = Promise.promise();
+            acquireRead(connHandler(promise, connection -> {
+                findOneOrder(connection, where, orderBy, columns, r -> {
+                    if (r.succeeded()) {
+                        promise.complete(r.result());
+                    } else {
+                        promise.fail(r.cause());
+                    }
+                    release(connection);
+                });
+            }));
+
+            return promise.future();
+        });
+    }
+
     /**
      * 更加条件查询数据。
      * select id, name ,uuid from user where name='张三' and uuid='abc'
@@ -677,14 +1321,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> find(String where, JsonArray whereArguments, JsonArray columns) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             find(connection, where, whereArguments, columns, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -702,20 +1346,64 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> find(JsonObject where, JsonArray columns) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             find(connection, where, columns, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
         return promise.future();
     }
 
+    /**
+     * 根据条件查询数据，按列名映射为JavaBean。
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param columns        查询列columns -> id, name ,uuid
+     * @param type           结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    @Override
+    public <T> Future<List<T>> find(String where, JsonArray whereArguments, JsonArray columns, Class<T> type) {
+        return query(selectSql(where, columns, null), whereArguments, type);
+    }
+
+    /**
+     * 根据条件查询数据，按列名映射为JavaBean。
+     *
+     * @param where   where -> {name='张三', uuid='abc'}
+     * @param columns 查询列columns -> id, name ,uuid
+     * @param type    结果类型 -> User.class
+     * @return Future<List < T>>
+     */
+    @Override
+    public <T> Future<List<T>> find(JsonObject where, JsonArray columns, Class<T> type) {
+        JsonArray arguments = new JsonArray();
+        generateArguments(where, arguments);
+        return query(selectSql(keys(where), columns, null), arguments, type);
+    }
+
+    /**
+     * 查询单条数据，按列名映射为JavaBean。
+     *
+     * @param where   where -> {id=1, uuid='abc'}
+     * @param columns columns -> id, name ,uuid
+     * @param type    结果类型 -> User.class
+     * @return Future<T> | 如果记录不存在返回 null
+     */
+    @Override
+    public <T> Future<T> findOne(JsonObject where, JsonArray columns, Class<T> type) {
+        JsonArray arguments = new JsonArray();
+        generateArguments(where, arguments);
+        return query(oneSql(keys(where), columns, null), arguments, type).map(list -> list.isEmpty() ? null : list.get(0));
+    }
+
     /**
      * 根据条件查询排序数据。
      * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
@@ -729,14 +1417,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> findOrder(String where, JsonArray whereArguments, String orderBy, JsonArray columns) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             findOrder(connection, where, whereArguments, orderBy, columns, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -755,20 +1443,103 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> findOrder(JsonObject where, String orderBy, JsonArray columns) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             findOrder(connection, where, orderBy, columns, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
         return promise.future();
     }
 
+    /**
+     * 根据条件流式查询数据，流结束、出错或关闭后自动归还连接。
+     * select id, name ,uuid from user where name='张三' and uuid='abc'
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param columns        查询列columns -> id, name ,uuid
+     * @param fetchSize      每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    @Override
+    public Future<JsonRowStream> findStream(String where, JsonArray whereArguments, JsonArray columns, int fetchSize) {
+        return stream(selectSql(where, columns, null), whereArguments, fetchSize);
+    }
+
+    /**
+     * 根据条件流式查询数据，流结束、出错或关闭后自动归还连接。
+     * select id, name ,uuid from user where name='张三' and uuid='abc'
+     *
+     * @param where     where -> {name='张三', uuid='abc'}
+     * @param columns   查询列columns -> id, name ,uuid
+     * @param fetchSize 每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    @Override
+    public Future<JsonRowStream> findStream(JsonObject where, JsonArray columns, int fetchSize) {
+        JsonArray arguments = new JsonArray();
+        generateArguments(where, arguments);
+        return stream(selectSql(keys(where), columns, null), arguments, fetchSize);
+    }
+
+    /**
+     * 根据条件流式查询排序数据，流结束、出错或关闭后自动归还连接。
+     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     *
+     * @param where          where -> "name =? and uuid=?"
+     * @param whereArguments whereArguments -> ['张三','abc']
+     * @param orderBy        orderBy -> name desc, uuid asc
+     * @param columns        columns -> id, name ,uuid
+     * @param fetchSize      每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    @Override
+    public Future<JsonRowStream> findOrderStream(String where, JsonArray whereArguments, String orderBy, JsonArray columns, int fetchSize) {
+        return stream(selectSql(where, columns, orderBy), whereArguments, fetchSize);
+    }
+
+    /**
+     * 根据条件流式查询排序数据，流结束、出错或关闭后自动归还连接。
+     * select id, name ,uuid from user where name='张三' and uuid='abc' order by id asc
+     *
+     * @param where     where -> {name='张三', uuid='abc'}
+     * @param orderBy   orderBy -> name desc, uuid asc
+     * @param columns   columns -> id, name ,uuid
+     * @param fetchSize 每次从数据库读取的行数，小于等于0时使用驱动默认值
+     * @return Future<JsonRowStream>
+     */
+    @Override
+    public Future<JsonRowStream> findOrderStream(JsonObject where, String orderBy, JsonArray columns, int fetchSize) {
+        JsonArray arguments = new JsonArray();
+        generateArguments(where, arguments);
+        return stream(selectSql(keys(where), columns, orderBy), arguments, fetchSize);
+    }
+
+    /**
+     * 打开查询流，fetchSize只作用于本次查询。
+     * fetchSize大于0时通过 {@link #cursorStream} 临时关闭自动提交，PostgreSQL才会使用游标分批读取；
+     * MySQL驱动需在url中开启useCursorFetch=true。
+     */
+    private Future<JsonRowStream> stream(String sql, JsonArray arguments, int fetchSize) {
+        Promise<JsonRowStream> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            cursorStream(connection, sql, arguments, fetchSize, r -> {
+                if (r.succeeded()) {
+                    promise.complete(new JsonRowStreamImpl(r.result()));
+                } else {
+                    promise.fail(r.cause());
+                }
+            });
+        }));
+        return promise.future();
+    }
+
     /**
      * 根据条件查询分页数据。
      * select id, name ,uuid from user where name='张三' and uuid='abc' limit 0, 10
@@ -783,14 +1554,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> findPage(String where, JsonArray whereArguments, int page, int limit, JsonArray columns) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             findPage(connection, where, whereArguments, page, limit, columns, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -810,20 +1581,221 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<List<JsonObject>> findPage(JsonObject where, int page, int limit, JsonArray columns) {
         Promise<List<JsonObject>> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             findPage(connection, where, page, limit, columns, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result().getRows());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
         return promise.future();
     }
 
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where (name='张三') AND id > 100 order by id limit 11
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param lastKeyValue   上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    @Override
+    public Future<KeysetPage> findAfter(String where, JsonArray whereArguments, String orderKey, Object lastKeyValue, int limit, JsonArray columns) {
+        Promise<KeysetPage> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            findAfter(connection, where, whereArguments, orderKey, lastKeyValue, limit, columns, r -> {
+                promise.handle(r);
+                release(connection);
+            });
+        }));
+        return promise.future();
+    }
+
+    /**
+     * 键集分页查询，按orderKey升序取lastKeyValue之后的limit条数据。
+     * select id, name ,uuid from user where name='张三' AND id > 100 order by id limit 11
+     *
+     * @param where        where -> {name='张三'}
+     * @param orderKey     排序键 -> id
+     * @param lastKeyValue 上一页最后一行的排序键值 -> 100，为null时查询第一页
+     * @param limit        limit -> 10
+     * @param columns      columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    @Override
+    public Future<KeysetPage> findAfter(JsonObject where, String orderKey, Object lastKeyValue, int limit, JsonArray columns) {
+        Promise<KeysetPage> promise = Promise.promise();
+        acquireRead(connHandler(promise, connection -> {
+            findAfter(connection, where, orderKey, lastKeyValue, limit, columns, r -> {
+                promise.handle(r);
+                release(connection);
+            });
+        }));
+        return promise.future();
+    }
+
+    /**
+     * 根据上一页返回的游标查询下一页。
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param orderKey       排序键 -> id
+     * @param cursor         游标
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    @Override
+    public Future<KeysetPage> findNext(String where, JsonArray whereArguments, String orderKey, String cursor, int limit, JsonArray columns) {
+        JsonObject position;
+        try {
+            position = cursorPosition(orderKey, cursor);
+        } catch (IllegalArgumentException e) {
+            return Future.failedFuture(e);
+        }
+        return findAfter(where, whereArguments, orderKey, position.getValue("v"), limit, columns);
+    }
+
+    /**
+     * 根据上一页返回的游标查询下一页。
+     *
+     * @param where    where -> {name='张三'}
+     * @param orderKey 排序键 -> id
+     * @param cursor   游标
+     * @param limit    limit -> 10
+     * @param columns  columns -> id, name ,uuid
+     * @return Future<KeysetPage>
+     */
+    @Override
+    public Future<KeysetPage> findNext(JsonObject where, String orderKey, String cursor, int limit, JsonArray columns) {
+        JsonObject position;
+        try {
+            position = cursorPosition(orderKey, cursor);
+        } catch (IllegalArgumentException e) {
+            return Future.failedFuture(e);
+        }
+        return findAfter(where, orderKey, position.getValue("v"), limit, columns);
+    }
+
+    /**
+     * 解析客户端传回的游标，游标中的排序键必须与调用方指定的orderKey一致。
+     */
+    private static JsonObject cursorPosition(String orderKey, String cursor) {
+        JsonObject position = KeysetPage.decodeCursor(cursor);
+        if (!position.getString("k").equals(orderKey)) {
+            throw new IllegalArgumentException(String.format("cursor key(%s) does not match orderKey(%s)", position.getString("k"), orderKey));
+        }
+        return position;
+    }
+
+    /**
+     * 分页查询数据和总数，两条语句在两个连接上并发执行。
+     * select id, name ,uuid from user where name='张三' limit 0, 10
+     * select count(1) from user where name='张三'
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param page           page -> 1
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @return Future<PageResult>
+     */
+    @Override
+    public Future<PageResult> findPageWithTotal(String where, JsonArray whereArguments, int page, int limit, JsonArray columns) {
+        return findPageWithTotal(where, whereArguments, page, limit, columns, false);
+    }
+
+    /**
+     * 分页查询数据和总数。
+     * skipShortCount为true时先查询分页数据，数据不足一页时直接计算总数，不再执行count语句。
+     *
+     * @param where          where -> "name =?"
+     * @param whereArguments whereArguments -> ['张三']
+     * @param page           page -> 1
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @param skipShortCount 数据不足一页时跳过count
+     * @return Future<PageResult>
+     */
+    @Override
+    public Future<PageResult> findPageWithTotal(String where, JsonArray whereArguments, int page, int limit, JsonArray columns, boolean skipShortCount) {
+        return pageWithTotal(where, whereArguments == null ? new JsonArray() : whereArguments, page, limit, columns, skipShortCount);
+    }
+
+    /**
+     * 分页查询数据和总数，两条语句在两个连接上并发执行。
+     * select id, name ,uuid from user where name='张三' limit 0, 10
+     * select count(1) from user where name='张三'
+     *
+     * @param where   where -> {name='张三'}
+     * @param page    page -> 1
+     * @param limit   limit -> 10
+     * @param columns columns -> id, name ,uuid
+     * @return Future<PageResult>
+     */
+    @Override
+    public Future<PageResult> findPageWithTotal(JsonObject where, int page, int limit, JsonArray columns) {
+        return findPageWithTotal(where, page, limit, columns, false);
+    }
+
+    /**
+     * 分页查询数据和总数。
+     * skipShortCount为true时先查询分页数据，数据不足一页时直接计算总数，不再执行count语句。
+     *
+     * @param where          where -> {name='张三'}
+     * @param page           page -> 1
+     * @param limit          limit -> 10
+     * @param columns        columns -> id, name ,uuid
+     * @param skipShortCount 数据不足一页时跳过count
+     * @return Future<PageResult>
+     */
+    @Override
+    public Future<PageResult> findPageWithTotal(JsonObject where, int page, int limit, JsonArray columns, boolean skipShortCount) {
+        JsonArray arguments = new JsonArray();
+        generateArguments(where, arguments);
+        return pageWithTotal(keys(where), arguments, page, limit, columns, skipShortCount);
+    }
+
+    private Future<PageResult> pageWithTotal(Object where, JsonArray arguments, int page, int limit, JsonArray columns, boolean skipShortCount) {
+        String countSql = countSql(where);
+        List<Object> countKey = countCache == null ? null : Arrays.asList(countSql, arguments.copy().getList());
+        Integer cached = countKey == null ? null : countCache.get(countKey);
+
+        Future<List<JsonObject>> rows = queryPageWithParams(pageSql(where, columns, null), arguments, page, limit);
+        if (cached != null) {
+            return rows.map(r -> new PageResult(r, cached, page, limit));
+        }
+        if (skipShortCount) {
+            int offset = calcPage(page, limit);
+            return rows.compose(r -> {
+                // 不足一页时总数即偏移量加本页行数，页号越界(空页)时仍需count
+                if (r.size() < limit && (!r.isEmpty() || offset == 0)) {
+                    return Future.succeededFuture(new PageResult(r, offset + r.size(), page, limit));
+                }
+                return count(countSql, arguments, countKey).map(total -> new PageResult(r, total, page, limit));
+            });
+        }
+
+        Future<Integer> total = count(countSql, arguments, countKey);
+        return CompositeFuture.all(rows, total).map(c -> new PageResult(rows.result(), total.result(), page, limit));
+    }
+
+    private Future<Integer> count(String countSql, JsonArray arguments, List<Object> countKey) {
+        Future<Integer> total = queryCountWithParams(countSql, arguments);
+        if (countKey == null) {
+            return total;
+        }
+        return total.onSuccess(count -> countCache.put(countKey, count));
+    }
+
     /**
      * 根据条件查询数据总数。
      * select count(1) user where name='张三' and uuid='abc'
@@ -835,14 +1807,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<Integer> count(String where, JsonArray whereArguments) {
         Promise<Integer> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             count(connection, where, whereArguments, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -859,14 +1831,14 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     @Override
     public Future<Integer> count(JsonObject where) {
         Promise<Integer> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
+        acquireRead(connHandler(promise, connection -> {
             count(connection, where, r -> {
                 if (r.succeeded()) {
                     promise.complete(r.result());
                 } else {
                     promise.fail(r.cause());
                 }
-                connection.close();
+                release(connection);
             });
         }));
 
@@ -874,50 +1846,142 @@ public class JdbcRepositoryImpl extends CurdRepositoryImpl implements JdbcReposi
     }
 
     /**
-     * 执行多个sql带事务。
+     * 执行多个sql带事务，按 {@link #updatePipelineWithParams(JsonArray)} 顺序执行。
      *
      * @param arguments 参数 -> JsonObject.get("sql") JsonObject.get("param")[JsonArray]
-     * @return Future<UpdateResult>
+     * @return Future<UpdateResult> 影响总行数
      */
     @Override
     public Future<UpdateResult> updateMultWithParams(JsonArray arguments) {
-        Promise<UpdateResult> promise = Promise.promise();
-        client.getConnection(connHandler(promise, connection -> {
-            List<Future> list = new ArrayList<>();
-            // 手动开启事务
-            Promise<Void> beginTransaction = Promise.promise();
-            connection.setAutoCommit(false, beginTransaction);
-            list.add(beginTransaction.future());
-
-            Promise<UpdateResult> future;
-            for (int i = 0; i < arguments.size(); i++) {
-                JsonObject object = arguments.getJsonObject(i);
-                future = Promise.promise();
-                connection.updateWithParams(object.getString("sql"), object.getJsonArray("param"), future);
-                list.add(future.future());
+        return updatePipelineWithParams(arguments).map(counts -> {
+            int updated = 0;
+            for (Integer count : counts) {
+                if (count > 0) {
+                    updated += count;
+                }
             }
+            return new UpdateResult(updated, new JsonArray());
+        });
+    }
 
-            CompositeFuture.all(list).onSuccess(success -> {
-                connection.commit(voidAsyncResult -> {
-                    if (voidAsyncResult.succeeded()) {
-                        promise.complete();
-                    } else {
-                        promise.fail(voidAsyncResult.cause());
-                    }
-                    connection.close();
-                });
-            }).onFailure(throwable -> {
-                connection.rollback(voidAsyncResult -> {
-                    if (voidAsyncResult.succeeded()) {
-                        promise.fail(throwable);
-                    } else {
-                        promise.fail(voidAsyncResult.cause());
+    /**
+     * 在事务内按顺序流水线执行多个sql，遇到第一个失败即停止并回滚，相邻的相同sql合并为一次批处理。
+     *
+     * @param arguments 参数 -> [{sql:'update user set name=? where id=?', param:['张三', 1]}, ...]
+     * @return Future<List < Integer>> 每条sql的影响行数
+     */
+    @Override
+    public Future<List<Integer>> updatePipelineWithParams(JsonArray arguments) {
+        Promise<List<Integer>> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> {
+            transaction(connection, conn -> updatePipelineWithParams(conn, arguments)).onComplete(r -> {
+                if (r.succeeded()) {
+                    for (int i = 0; i < arguments.size(); i++) {
+                        invalidateSql(arguments.getJsonObject(i).getString("sql"));
                     }
-                    connection.close();
-                });
+                }
+                promise.handle(r);
+                release(connection);
             });
         }));
+        return promise.future();
+    }
+
+    /**
+     * 开启会话，会话内所有操作共用一个连接。
+     *
+     * @return Future<JdbcSession>
+     */
+    @Override
+    public Future<JdbcSession> session() {
+        Promise<JdbcSession> promise = Promise.promise();
+        acquire(connHandler(promise, connection -> promise.complete(new JdbcSessionImpl(this, connection))));
+        return promise.future();
+    }
+
+    /**
+     * 在会话内执行多个操作，完成后自动关闭会话。
+     *
+     * @param function 会话内操作
+     * @return Future<T>
+     */
+    @Override
+    public <T> Future<T> withSession(Function<JdbcSession, Future<T>> function) {
+        Promise<T> promise = Promise.promise();
+        session().onComplete(s -> {
+            if (s.failed()) {
+                promise.fail(s.cause());
+                return;
+            }
+            JdbcSession session = s.result();
+            apply(function, session).onComplete(r -> session.close().onComplete(c -> promise.handle(r)));
+        });
+        return promise.future();
+    }
 
+    /**
+     * 在事务内执行多个操作，成功提交、失败回滚，最后归还连接。
+     * 因死锁或序列化冲突失败时退避后在新连接上重新执行整个function，最多重试transaction_retries次。
+     * 事务内的createAll等批量操作加入该事务，不单独提交。
+     *
+     * @param function 事务内操作
+     * @return Future<T>
+     */
+    @Override
+    public <T> Future<T> inTransaction(Function<JdbcSession, Future<T>> function) {
+        Promise<T> promise = Promise.promise();
+        inTransaction(function, 0, promise);
         return promise.future();
     }
+
+    private <T> void inTransaction(Function<JdbcSession, Future<T>> function, int attempt, Promise<T> promise) {
+        acquire(connHandler(promise, connection -> {
+            JdbcSessionImpl session = new JdbcSessionImpl(this, connection, true);
+            // 提交或回滚并恢复自动提交后再归还连接
+            transaction(connection, conn -> apply(function, session)).onComplete(r -> session.close().onComplete(c -> {
+                if (r.failed() && attempt < transactionRetries && retryable(r.cause())) {
+                    // 指数退避，在[1, delay]内随机，避免冲突的事务同时重试
+                    long delay = Math.min(transactionRetryMaxDelay, transactionRetryDelay << Math.min(attempt, 30));
+                    vertx.setTimer(1 + ThreadLocalRandom.current().nextLong(Math.max(1, delay)), id -> inTransaction(function, attempt + 1, promise));
+                } else {
+                    promise.handle(r);
+                }
+            }));
+        }));
+    }
+
+    /**
+     * 是否为可重试的事务冲突：SQLSTATE 40001(序列化冲突，MySQL、SQL Server死锁同为40001)、40P01(PostgreSQL死锁)，
+     * Oracle ORA-00060死锁(61000)和ORA-08177序列化冲突(72000)。
+     * 40002完整性约束、40003语句完成状态未知等其他40类错误重试无意义或不安全，不重试。
+     * 驱动未提供SQLSTATE时按SQLTransactionRollbackException判断。
+     */
+    protected static boolean retryable(Throwable cause) {
+        for (Throwable t = cause; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                int code = ((SQLException) t).getErrorCode();
+                if (state == null) {
+                    if (t instanceof SQLTransactionRollbackException) {
+                        return true;
+                    }
+                } else if ("40001".equals(state) || "40P01".equals(state)
+                        || ("61000".equals(state) && code == 60) || ("72000".equals(state) && code == 8177)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 执行会话内操作，function抛出的异常转为失败的Future。
+     */
+    static <T> Future<T> apply(Function<JdbcSession, Future<T>> function, JdbcSession session) {
+        try {
+            return function.apply(session);
+        } catch (Throwable t) {
+            return Future.failedFuture(t);
+        }
+    }
 }
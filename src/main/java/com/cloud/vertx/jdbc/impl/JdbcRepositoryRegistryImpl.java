@@ -0,0 +1,80 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.JdbcMetrics;
+import com.cloud.vertx.jdbc.JdbcRepository;
+import com.cloud.vertx.jdbc.JdbcRepositoryRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * repository注册表实现类。
+ * 首次创建时建立连接池，之后各表的repository通过复制构造方法共用连接池、主从路由、sql缓存和count缓存。
+ *
+ * @author zhoudingyun
+ */
+public class JdbcRepositoryRegistryImpl implements JdbcRepositoryRegistry {
+    private final JdbcRepositoryImpl root;
+    private final Map<String, JdbcRepositoryImpl> repositories = new ConcurrentHashMap<>();
+
+    /**
+     * 构造方法。
+     *
+     * @param vertx  vertx
+     * @param config config，包含data_source_name时与同名的其他注册表或repository共用连接池
+     */
+    public JdbcRepositoryRegistryImpl(Vertx vertx, JsonObject config) {
+        this(vertx, config, JdbcMetrics.NOOP);
+    }
+
+    /**
+     * 构造方法。
+     *
+     * @param vertx   vertx
+     * @param config  config
+     * @param metrics 所有表共用的指标收集
+     */
+    public JdbcRepositoryRegistryImpl(Vertx vertx, JsonObject config, JdbcMetrics metrics) {
+        this.root = new JdbcRepositoryImpl(vertx, config, null);
+        this.root.setMetrics(metrics);
+    }
+
+    @Override
+    public JdbcRepository repository(String tableName) {
+        return repositories.computeIfAbsent(tableName, name -> new JdbcRepositoryImpl(root, name));
+    }
+
+    @Override
+    public Set<String> tableNames() {
+        return Collections.unmodifiableSet(repositories.keySet());
+    }
+
+    @Override
+    public JsonObject poolUsage() {
+        JsonObject json = new JsonObject();
+        new TreeMap<>(repositories).forEach((name, repository) -> json.put(name, repository.poolUsage()));
+        return json;
+    }
+
+    @Override
+    public Future<Void> close() {
+        repositories.values().forEach(repository -> {
+            if (repository.entityCache != null) {
+                repository.entityCache.close();
+            }
+        });
+        Promise<Void> promise = Promise.promise();
+        root.client.close(promise);
+        if (root.router == null) {
+            return promise.future();
+        }
+        return promise.future().compose(v -> root.router.close());
+    }
+}
@@ -0,0 +1,216 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.CurdRepository;
+import com.cloud.vertx.jdbc.JdbcSession;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.sql.SQLConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * JDBC会话实现类，所有操作复用构造时获取的连接。
+ *
+ * @author zhoudingyun
+ */
+public class JdbcSessionImpl extends JdbcRepositoryImpl implements JdbcSession {
+    private final SQLConnection connection;
+    private final List<Runnable> invalidations = new ArrayList<>();
+    private boolean closed;
+    /**
+     * 是否处于inTransaction开启的事务中，此时批量操作加入该事务，不单独提交。
+     */
+    private boolean transactional;
+
+    /**
+     * 构造方法。
+     *
+     * @param repository 创建会话的repository
+     * @param connection 会话绑定的连接
+     */
+    public JdbcSessionImpl(JdbcRepositoryImpl repository, SQLConnection connection) {
+        this(repository, connection, false);
+    }
+
+    /**
+     * 构造方法。
+     *
+     * @param repository    创建会话的repository
+     * @param connection    会话绑定的连接
+     * @param transactional 连接是否已开启事务
+     */
+    public JdbcSessionImpl(JdbcRepositoryImpl repository, SQLConnection connection, boolean transactional) {
+        super(repository);
+        this.connection = connection;
+        this.transactional = transactional;
+    }
+
+    @Override
+    protected void acquire(Handler<AsyncResult<SQLConnection>> handler) {
+        if (closed) {
+            handler.handle(Future.failedFuture(new IllegalStateException("session is closed")));
+        } else {
+            handler.handle(Future.succeededFuture(connection));
+        }
+    }
+
+    @Override
+    protected void acquireRead(Handler<AsyncResult<SQLConnection>> handler) {
+        acquire(handler);
+    }
+
+    @Override
+    protected boolean transactional() {
+        return transactional;
+    }
+
+    @Override
+    protected void release(SQLConnection connection) {
+        // 连接在会话关闭时归还
+    }
+
+    @Override
+    protected boolean useCache() {
+        return false;
+    }
+
+    /**
+     * 会话内的写操作立即失效实体缓存和结果缓存，会话关闭(事务结束)后再失效一次，
+     * 避免提交前其他请求把旧值重新放入缓存。
+     */
+    @Override
+    protected void invalidate(JsonObject where) {
+        super.invalidate(where);
+        invalidations.add(() -> super.invalidate(where));
+    }
+
+    @Override
+    protected void invalidate(String where, JsonArray arguments) {
+        super.invalidate(where, arguments);
+        invalidations.add(() -> super.invalidate(where, arguments));
+    }
+
+    @Override
+    protected void invalidateInserted() {
+        super.invalidateInserted();
+        invalidations.add(super::invalidateInserted);
+    }
+
+    @Override
+    protected void invalidateSql(String sql) {
+        super.invalidateSql(sql);
+        invalidations.add(() -> super.invalidateSql(sql));
+    }
+
+    @Override
+    public Future<SQLConnection> getConnection() {
+        Promise<SQLConnection> promise = Promise.promise();
+        acquire(promise);
+        return promise.future();
+    }
+
+    @Override
+    public SQLConnection connection() {
+        return connection;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public Future<Void> close() {
+        if (closed) {
+            return Future.succeededFuture();
+        }
+        closed = true;
+        Promise<Void> promise = Promise.promise();
+        super.release(connection, promise);
+        return promise.future().onComplete(r -> {
+            invalidations.forEach(Runnable::run);
+            invalidations.clear();
+        });
+    }
+
+    /**
+     * 会话内再次开启会话，返回当前会话本身。
+     *
+     * @return Future<JdbcSession>
+     */
+    @Override
+    public Future<JdbcSession> session() {
+        if (closed) {
+            return Future.failedFuture(new IllegalStateException("session is closed"));
+        }
+        return Future.succeededFuture(this);
+    }
+
+    /**
+     * 在当前会话内执行，不关闭会话。
+     *
+     * @param function 会话内操作
+     * @return Future<T>
+     */
+    @Override
+    public <T> Future<T> withSession(Function<JdbcSession, Future<T>> function) {
+        return session().compose(function);
+    }
+
+    /**
+     * 在当前会话的连接上执行事务，不重试；已在事务中时直接加入外层事务。
+     *
+     * @param function 事务内操作
+     * @return Future<T>
+     */
+    @Override
+    public <T> Future<T> inTransaction(Function<JdbcSession, Future<T>> function) {
+        if (closed) {
+            return Future.failedFuture(new IllegalStateException("session is closed"));
+        }
+        if (transactional) {
+            return apply(function, this);
+        }
+        transactional = true;
+        Promise<T> promise = Promise.promise();
+        super.transaction(connection, conn -> apply(function, this)).onComplete(r -> {
+            transactional = false;
+            promise.handle(r);
+        });
+        return promise.future();
+    }
+
+    /**
+     * 已在事务中时直接执行，由外层事务提交或回滚。
+     */
+    @Override
+    protected <T> Future<T> transaction(SQLConnection connection, Function<SQLConnection, Future<T>> function) {
+        if (!transactional) {
+            return super.transaction(connection, function);
+        }
+        try {
+            return function.apply(connection);
+        } catch (Throwable t) {
+            return Future.failedFuture(t);
+        }
+    }
+
+    /**
+     * importStream按批自行提交，不能在事务中执行。
+     */
+    @Override
+    public CurdRepository importStream(SQLConnection connection, ReadStream<JsonObject> rows, int batchSize, int commitEvery, Handler<JsonObject> progress, Handler<AsyncResult<JsonObject>> handler) {
+        if (transactional) {
+            handler.handle(Future.failedFuture(new IllegalStateException("importStream commits by itself and cannot run in a transaction")));
+            return this;
+        }
+        return super.importStream(connection, rows, batchSize, commitEvery, progress, handler);
+    }
+}
@@ -0,0 +1,91 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.JsonRowStream;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.SQLRowStream;
+
+import java.util.List;
+
+/**
+ * 将SQLRowStream的JsonArray行按列名转换为JsonObject。
+ *
+ * @author zhoudingyun
+ */
+class JsonRowStreamImpl implements JsonRowStream {
+    private final SQLRowStream stream;
+    private List<String> columns;
+
+    JsonRowStreamImpl(SQLRowStream stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public List<String> columns() {
+        if (columns == null) {
+            columns = stream.columns();
+        }
+        return columns;
+    }
+
+    private JsonObject toJson(JsonArray row) {
+        List<String> columns = columns();
+        JsonObject json = new JsonObject();
+        for (int i = 0; i < columns.size(); i++) {
+            json.put(columns.get(i), row.getValue(i));
+        }
+        return json;
+    }
+
+    @Override
+    public JsonRowStream exceptionHandler(Handler<Throwable> handler) {
+        stream.exceptionHandler(handler);
+        return this;
+    }
+
+    @Override
+    public JsonRowStream handler(Handler<JsonObject> handler) {
+        if (handler == null) {
+            stream.handler(null);
+        } else {
+            stream.handler(row -> handler.handle(toJson(row)));
+        }
+        return this;
+    }
+
+    @Override
+    public JsonRowStream pause() {
+        stream.pause();
+        return this;
+    }
+
+    @Override
+    public JsonRowStream resume() {
+        stream.resume();
+        return this;
+    }
+
+    @Override
+    public JsonRowStream fetch(long amount) {
+        stream.fetch(amount);
+        return this;
+    }
+
+    @Override
+    public JsonRowStream endHandler(Handler<Void> endHandler) {
+        stream.endHandler(endHandler);
+        return this;
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+    @Override
+    public void close(Handler<AsyncResult<Void>> handler) {
+        stream.close(handler);
+    }
+}
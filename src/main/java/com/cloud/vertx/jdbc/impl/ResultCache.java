@@ -0,0 +1,282 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.sql.SqlTables;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.ResultSet;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 查询结果缓存，键为(sql, 参数)，值为紧凑的行数组 {@link ResultSet#getResults()}，按估算内存总量做LRU淘汰。
+ * <pre>
+ * result_cache: {max_bytes: 33554432, max_entry_bytes: 4194304, ttl: 60000}
+ * </pre>
+ * 每条结果按语句涉及的表打标签并记录各表的版本号，写入某表时只递增该表版本号，
+ * 读取时任一标签版本号变化即视为失效，查询期间发生的写入同样会使结果失效。
+ *
+ * @author zhoudingyun
+ */
+public class ResultCache {
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_TTL = 60000L;
+
+    private static final int ENTRY_OVERHEAD = 128;
+    private static final int ROW_OVERHEAD = 40;
+    private static final int VALUE_OVERHEAD = 16;
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlNanos;
+    private final LinkedHashMap<List<Object>, Entry> map = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 构造方法。
+     *
+     * @param config result_cache配置
+     */
+    public ResultCache(JsonObject config) {
+        this.maxBytes = config.getLong("max_bytes", DEFAULT_MAX_BYTES);
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException(String.format("result_cache.max_bytes(%d) <= 0", maxBytes));
+        }
+        // 单条结果最多占用总量的1/8，避免一个大结果挤掉全部缓存
+        this.maxEntryBytes = config.getLong("max_entry_bytes", maxBytes / 8);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("ttl", DEFAULT_TTL));
+    }
+
+    /**
+     * 缓存键。
+     *
+     * @param sql       sql语句
+     * @param arguments 参数
+     * @return List<Object>
+     */
+    public static List<Object> key(String sql, JsonArray arguments) {
+        List<?> values = arguments == null ? Collections.emptyList() : arguments.copy().getList();
+        return Arrays.asList(sql, values);
+    }
+
+    /**
+     * 语句涉及表的当前版本号，查询前获取，放入缓存时使用。
+     *
+     * @param sql sql语句
+     * @return long[]
+     */
+    public long[] versions(String sql) {
+        Set<String> tables = SqlTables.of(sql);
+        long[] result = new long[tables.size()];
+        int i = 0;
+        for (String table : tables) {
+            result[i++] = version(table).get();
+        }
+        return result;
+    }
+
+    private AtomicLong version(String table) {
+        return versions.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    /**
+     * 获取缓存。
+     *
+     * @param key 缓存键
+     * @return ResultSet | 不存在、过期或已失效返回null
+     */
+    public ResultSet get(List<Object> key) {
+        Entry entry;
+        synchronized (this) {
+            entry = map.get(key);
+            if (entry != null && !valid(entry)) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // 调用方或行映射函数可能修改返回的行，每次返回副本
+        return new ResultSet(new ArrayList<>(entry.columns), copy(entry.results), null);
+    }
+
+    private boolean valid(Entry entry) {
+        if (entry.expireAt != 0 && entry.expireAt - System.nanoTime() <= 0) {
+            return false;
+        }
+        int i = 0;
+        for (String table : entry.tables) {
+            if (version(table).get() != entry.versions[i++]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 放入缓存，超过单条上限时不缓存。
+     *
+     * @param key       缓存键
+     * @param sql       sql语句
+     * @param resultSet 查询结果
+     * @param versions  查询前的表版本号 {@link #versions(String)}
+     */
+    public void put(List<Object> key, String sql, ResultSet resultSet, long[] versions) {
+        List<JsonArray> results = resultSet.getResults() == null ? Collections.emptyList() : resultSet.getResults();
+        long size = estimate(resultSet.getColumnNames(), results);
+        if (size > maxEntryBytes) {
+            return;
+        }
+        // 查询结果还会交给调用方，缓存保存副本
+        List<String> columns = resultSet.getColumnNames() == null ? Collections.emptyList() : new ArrayList<>(resultSet.getColumnNames());
+        Entry entry = new Entry(columns, copy(results), SqlTables.of(sql), versions, size,
+                ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0);
+        synchronized (this) {
+            if (!valid(entry)) {
+                return;
+            }
+            remove(key);
+            map.put(key, entry);
+            bytes += size;
+            Iterator<Map.Entry<List<Object>, Entry>> it = map.entrySet().iterator();
+            while (bytes > maxBytes && it.hasNext()) {
+                bytes -= it.next().getValue().bytes;
+                it.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(List<Object> key) {
+        Entry old = map.remove(key);
+        if (old != null) {
+            bytes -= old.bytes;
+        }
+    }
+
+    /**
+     * 失效涉及该表的所有结果。
+     *
+     * @param table 表名
+     */
+    public void invalidate(String table) {
+        if (table != null) {
+            version(table.toLowerCase(Locale.ROOT)).incrementAndGet();
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * 失效语句涉及的所有表。
+     *
+     * @param sql sql语句
+     */
+    public void invalidateSql(String sql) {
+        for (String table : SqlTables.of(sql)) {
+            invalidate(table);
+        }
+    }
+
+    /**
+     * 清空缓存。
+     */
+    public synchronized void clear() {
+        map.clear();
+        bytes = 0;
+    }
+
+    /**
+     * 复制结果行。
+     *
+     * @param results 结果行
+     * @return 行的深拷贝
+     */
+    static List<JsonArray> copy(List<JsonArray> results) {
+        if (results == null) {
+            return null;
+        }
+        List<JsonArray> copy = new ArrayList<>(results.size());
+        for (JsonArray row : results) {
+            copy.add(row == null ? null : row.copy());
+        }
+        return copy;
+    }
+
+    private static long estimate(List<String> columns, List<JsonArray> results) {
+        long size = ENTRY_OVERHEAD;
+        if (columns != null) {
+            for (String column : columns) {
+                size += VALUE_OVERHEAD + 2L * column.length();
+            }
+        }
+        for (JsonArray row : results) {
+            size += ROW_OVERHEAD;
+            for (int i = 0; i < row.size(); i++) {
+                Object value = row.getValue(i);
+                if (value instanceof CharSequence) {
+                    size += VALUE_OVERHEAD + 24 + 2L * ((CharSequence) value).length();
+                } else if (value instanceof byte[]) {
+                    size += VALUE_OVERHEAD + ((byte[]) value).length;
+                } else {
+                    size += VALUE_OVERHEAD;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 缓存统计信息。
+     *
+     * @return {size, bytes, maxBytes, hits, misses, hitRatio, evictions, invalidations}
+     */
+    public JsonObject stats() {
+        int size;
+        long used;
+        synchronized (this) {
+            size = map.size();
+            used = bytes;
+        }
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return new JsonObject()
+                .put("size", size)
+                .put("bytes", used)
+                .put("maxBytes", maxBytes)
+                .put("hits", hit)
+                .put("misses", misses.sum())
+                .put("hitRatio", total == 0 ? 0.0 : (double) hit / total)
+                .put("evictions", evictions.sum())
+                .put("invalidations", invalidations.sum());
+    }
+
+    private static final class Entry {
+        private final List<String> columns;
+        private final List<JsonArray> results;
+        private final Set<String> tables;
+        private final long[] versions;
+        private final long bytes;
+        private final long expireAt;
+
+        private Entry(List<String> columns, List<JsonArray> results, Set<String> tables, long[] versions, long bytes, long expireAt) {
+            this.columns = columns;
+            this.results = results;
+            this.tables = tables;
+            this.versions = versions;
+            this.bytes = bytes;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.enums.ExportFormat;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.ext.sql.SQLRowStream;
+
+import java.util.List;
+
+/**
+ * 将SQLRowStream的行直接编码为CSV/NDJSON写入WriteStream，不构造JsonObject。
+ * <pre>
+ * export_buffer_size: 65536
+ * </pre>
+ * 行先写入复用的StringBuilder，达到export_buffer_size字符后编码为一个Buffer写出；
+ * 目标写队列满时暂停读取，drain后恢复；驱动按fetchSize分批读取时(见 {@link JdbcRepositoryImpl#export})内存占用与结果集大小无关。
+ * 写出的Buffer由目标流异步持有，不能复用，每次flush新建。
+ *
+ * @author zhoudingyun
+ */
+public class RowExporter {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    /**
+     * 进度回调最小间隔毫秒数。
+     */
+    private static final long PROGRESS_INTERVAL = 1000;
+
+    private final SQLRowStream stream;
+    private final WriteStream<Buffer> target;
+    private final ExportFormat format;
+    private final int bufferSize;
+    private final Handler<JsonObject> progress;
+    private final Promise<JsonObject> promise = Promise.promise();
+
+    private final StringBuilder chars;
+    /**
+     * NDJSON每列的前缀 -> {"id": | ,"name":
+     */
+    private String[] prefixes;
+    private long rows;
+    private long bytes;
+    private long start;
+    private long lastProgress;
+
+    /**
+     * 构造方法。
+     *
+     * @param stream     查询流，导出结束、出错后由流自身归还连接
+     * @param target     目标流 -> AsyncFile | HttpServerResponse，导出完成后不调用end，由调用方关闭
+     * @param format     导出格式
+     * @param bufferSize 每次写出的字符数
+     * @param progress   进度回调 -> {rows, bytes, millis, rowsPerSecond}，最多每秒一次，可为null
+     */
+    public RowExporter(SQLRowStream stream, WriteStream<Buffer> target, ExportFormat format, int bufferSize, Handler<JsonObject> progress) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException(String.format("export_buffer_size(%d) <= 0", bufferSize));
+        }
+        this.stream = stream;
+        this.target = target;
+        this.format = format;
+        this.bufferSize = bufferSize;
+        this.progress = progress;
+        // 预留一行的余量，减少扩容
+        this.chars = new StringBuilder(bufferSize + bufferSize / 4);
+    }
+
+    /**
+     * 开始导出。
+     *
+     * @return Future<JsonObject> -> {rows, bytes, millis, rowsPerSecond}
+     */
+    public Future<JsonObject> start() {
+        start = System.nanoTime();
+        lastProgress = start;
+        header(stream.columns());
+        target.exceptionHandler(t -> {
+            stream.close();
+            promise.tryFail(t);
+        });
+        stream.exceptionHandler(promise::tryFail);
+        stream.endHandler(v -> {
+            flush();
+            promise.tryComplete(stats());
+        });
+        stream.handler(this::row);
+        return promise.future();
+    }
+
+    private void header(List<String> columns) {
+        if (format == ExportFormat.Csv) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i != 0) {
+                    chars.append(',');
+                }
+                csv(columns.get(i));
+            }
+            chars.append("\r\n");
+        } else {
+            prefixes = new String[columns.size()];
+            StringBuilder prefix = new StringBuilder();
+            for (int i = 0; i < prefixes.length; i++) {
+                prefix.setLength(0);
+                prefix.append(i == 0 ? '{' : ',');
+                json(prefix, columns.get(i));
+                prefixes[i] = prefix.append(':').toString();
+            }
+        }
+    }
+
+    private void row(JsonArray row) {
+        if (format == ExportFormat.Csv) {
+            for (int i = 0; i < row.size(); i++) {
+                if (i != 0) {
+                    chars.append(',');
+                }
+                Object value = row.getValue(i);
+                if (value instanceof String) {
+                    csv((String) value);
+                } else if (value != null) {
+                    chars.append(value);
+                }
+            }
+            chars.append("\r\n");
+        } else {
+            if (row.isEmpty()) {
+                chars.append('{');
+            }
+            for (int i = 0; i < row.size(); i++) {
+                chars.append(prefixes[i]);
+                jsonValue(row.getValue(i));
+            }
+            chars.append("}\n");
+        }
+        rows++;
+        if (chars.length() >= bufferSize) {
+            flush();
+            if (target.writeQueueFull()) {
+                stream.pause();
+                target.drainHandler(v -> stream.resume());
+            }
+            progress();
+        }
+    }
+
+    private void flush() {
+        if (chars.length() == 0) {
+            return;
+        }
+        Buffer buffer = Buffer.buffer(chars.toString());
+        chars.setLength(0);
+        bytes += buffer.length();
+        target.write(buffer);
+    }
+
+    private void progress() {
+        if (progress == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (now - lastProgress >= PROGRESS_INTERVAL * 1_000_000L) {
+            lastProgress = now;
+            progress.handle(stats());
+        }
+    }
+
+    private JsonObject stats() {
+        long nanos = Math.max(1, System.nanoTime() - start);
+        return new JsonObject()
+                .put("rows", rows)
+                .put("bytes", bytes)
+                .put("millis", nanos / 1_000_000L)
+                .put("rowsPerSecond", rows * 1_000_000_000L / nanos);
+    }
+
+    /**
+     * CSV字段，包含逗号、引号或换行时加引号，引号写两次。
+     */
+    private void csv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            chars.append(value);
+            return;
+        }
+        chars.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                chars.append('"');
+            }
+            chars.append(c);
+        }
+        chars.append('"');
+    }
+
+    private void jsonValue(Object value) {
+        if (value == null) {
+            chars.append("null");
+        } else if (value instanceof String) {
+            json(chars, (String) value);
+        } else if (value instanceof Boolean || value instanceof Integer || value instanceof Long) {
+            chars.append(value);
+        } else if (value instanceof Number) {
+            String number = value.toString();
+            // NaN/Infinity不是合法的JSON数值，按字符串导出
+            if (Character.isDigit(number.charAt(number.length() - 1))) {
+                chars.append(number);
+            } else {
+                json(chars, number);
+            }
+        } else if (value instanceof JsonObject) {
+            chars.append(((JsonObject) value).encode());
+        } else if (value instanceof JsonArray) {
+            chars.append(((JsonArray) value).encode());
+        } else {
+            json(chars, value.toString());
+        }
+    }
+
+    private static void json(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+}
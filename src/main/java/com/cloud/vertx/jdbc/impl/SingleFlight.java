@@ -0,0 +1,140 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 相同查询合并，键相同的读操作在执行期间只访问一次数据库，结果分发给所有等待者。
+ * <pre>
+ * single_flight: true
+ * </pre>
+ * 只合并已在执行中的查询，不缓存结果；等待者拿到的是结果副本，在各自的context上回调。
+ * 写操作成功后调用 {@link #invalidate()}，之前开始的查询不再被合并，避免读到自己写入之前的结果。
+ *
+ * @author zhoudingyun
+ */
+public class SingleFlight {
+    private final Map<Object, Call<?>> inFlight = new ConcurrentHashMap<>();
+    /**
+     * 失效次数，查询开始时记录，与当前值不同的查询不再接受等待者。
+     */
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+
+    /**
+     * 执行查询，键相同的查询正在执行时等待其结果。
+     *
+     * @param key  查询键 -> [表名, sql, 参数]
+     * @param call 实际查询
+     * @param copy 结果复制函数，等待者各拿一份，避免共用可变的JsonObject
+     * @param <T>  结果类型
+     * @return Future<T>
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Future<T> execute(Object key, Supplier<Future<T>> call, Function<T, T> copy) {
+        Call<T> current = new Call<>(copy, epoch.get());
+        for (; ; ) {
+            Call<T> existing = (Call<T>) inFlight.putIfAbsent(key, current);
+            if (existing == null) {
+                break;
+            }
+            Promise<T> promise = Promise.promise();
+            if (existing.epoch == current.epoch && existing.join(promise, Vertx.currentContext())) {
+                shared.increment();
+                return promise.future();
+            }
+            // 已完成但还未移除，或开始后发生过失效，替换后重试
+            inFlight.remove(key, existing);
+        }
+        executed.increment();
+        Future<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            future = Future.failedFuture(e);
+        }
+        Promise<T> promise = Promise.promise();
+        future.onComplete(r -> {
+            inFlight.remove(key, current);
+            current.complete(r);
+            promise.handle(r);
+        });
+        return promise.future();
+    }
+
+    /**
+     * 写操作成功后调用，正在执行的查询可能读到写入之前的数据，之后的相同查询重新执行。
+     */
+    public void invalidate() {
+        epoch.incrementAndGet();
+    }
+
+    /**
+     * 统计信息。
+     *
+     * @return {inFlight, executed, shared}
+     */
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("inFlight", inFlight.size())
+                .put("executed", executed.sum())
+                .put("shared", shared.sum());
+    }
+
+    private static final class Call<T> {
+        private final Function<T, T> copy;
+        private final long epoch;
+        private final List<Promise<T>> waiters = new ArrayList<>();
+        private final List<Context> contexts = new ArrayList<>();
+        private boolean done;
+
+        private Call(Function<T, T> copy, long epoch) {
+            this.copy = copy;
+            this.epoch = epoch;
+        }
+
+        private synchronized boolean join(Promise<T> promise, Context context) {
+            if (done) {
+                return false;
+            }
+            waiters.add(promise);
+            contexts.add(context);
+            return true;
+        }
+
+        /**
+         * 在执行者回调之前为每个等待者复制结果，执行者随后修改结果不影响等待者。
+         */
+        private void complete(AsyncResult<T> result) {
+            synchronized (this) {
+                done = true;
+            }
+            for (int i = 0; i < waiters.size(); i++) {
+                Promise<T> promise = waiters.get(i);
+                Context context = contexts.get(i);
+                AsyncResult<T> own = result.succeeded() && result.result() != null
+                        ? Future.succeededFuture(copy.apply(result.result())) : result;
+                if (context == null || context == Vertx.currentContext()) {
+                    promise.handle(own);
+                } else {
+                    context.runOnContext(v -> promise.handle(own));
+                }
+            }
+        }
+    }
+}
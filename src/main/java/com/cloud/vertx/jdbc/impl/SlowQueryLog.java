@@ -0,0 +1,149 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 慢查询日志。
+ * 执行时间超过slow_query_threshold毫秒的语句以warn级别记录语句形状、部分参数、连接等待时间和行数；
+ * slow_query_explain为true时另取连接对select语句执行EXPLAIN，两次EXPLAIN至少间隔slow_query_explain_interval毫秒。
+ *
+ * @author zhoudingyun
+ */
+public class SlowQueryLog {
+    public static final int DEFAULT_SAMPLE_ARGUMENTS = 10;
+    public static final long DEFAULT_EXPLAIN_INTERVAL = 10000L;
+    private static final int MAX_ARGUMENT_LENGTH = 64;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private final long thresholdNanos;
+    private final int sampleArguments;
+    private final boolean explain;
+    private final long explainIntervalNanos;
+    private final Consumer<Handler<AsyncResult<SQLConnection>>> connections;
+    private final AtomicLong nextExplain = new AtomicLong(System.nanoTime());
+
+    /**
+     * 构造方法。
+     *
+     * @param config      config -> {slow_query_threshold: 500, slow_query_sample_arguments: 10, slow_query_explain: false, slow_query_explain_interval: 10000}
+     * @param connections 获取EXPLAIN所用连接，连接使用后关闭
+     */
+    public SlowQueryLog(JsonObject config, Consumer<Handler<AsyncResult<SQLConnection>>> connections) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("slow_query_threshold"));
+        this.sampleArguments = config.getInteger("slow_query_sample_arguments", DEFAULT_SAMPLE_ARGUMENTS);
+        this.explain = config.getBoolean("slow_query_explain", false);
+        this.explainIntervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong("slow_query_explain_interval", DEFAULT_EXPLAIN_INTERVAL));
+        this.connections = connections;
+    }
+
+    /**
+     * 配置中是否开启慢查询日志。
+     *
+     * @param config config
+     * @return boolean
+     */
+    public static boolean enabled(JsonObject config) {
+        Long threshold = config.getLong("slow_query_threshold");
+        return threshold != null && threshold > 0;
+    }
+
+    /**
+     * 记录语句执行，未超过阈值时直接返回。
+     *
+     * @param shape     语句形状
+     * @param sql       原始语句
+     * @param arguments 参数，可为null
+     * @param nanos     执行时间(纳秒)
+     * @param waitNanos 获取连接等待时间(纳秒)
+     * @param rows      读取或影响行数
+     * @param failed    是否失败
+     */
+    public void executed(String shape, String sql, JsonArray arguments, long nanos, long waitNanos, int rows, boolean failed) {
+        if (nanos < thresholdNanos) {
+            return;
+        }
+        if (LOGGER.isWarnEnabled()) {
+            LOGGER.warn(String.format("slow query %.1fms (wait %.1fms, rows %d%s): %s args: %s",
+                    nanos / 1_000_000.0, waitNanos / 1_000_000.0, rows, failed ? ", failed" : "", shape, sample(arguments)));
+        }
+        if (explain && isSelect(sql) && acquireExplain()) {
+            explain(shape, sql, arguments);
+        }
+    }
+
+    private String sample(JsonArray arguments) {
+        if (arguments == null) {
+            return "[]";
+        }
+        StringBuilder sb = new StringBuilder("[");
+        int size = Math.min(arguments.size(), sampleArguments);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            Object value = arguments.getValue(i);
+            String text = String.valueOf(value);
+            if (text.length() > MAX_ARGUMENT_LENGTH) {
+                text = text.substring(0, MAX_ARGUMENT_LENGTH) + "...";
+            }
+            sb.append(value instanceof CharSequence ? "'" + text + "'" : text);
+        }
+        if (arguments.size() > size) {
+            sb.append(", ... ").append(arguments.size() - size).append(" more");
+        }
+        return sb.append(']').toString();
+    }
+
+    private static boolean isSelect(String sql) {
+        String s = sql.trim();
+        return s.regionMatches(true, 0, "select", 0, 6) || s.regionMatches(true, 0, "with", 0, 4);
+    }
+
+    /**
+     * 限流，两次EXPLAIN至少间隔explainIntervalNanos。
+     */
+    private boolean acquireExplain() {
+        long now = System.nanoTime();
+        long next = nextExplain.get();
+        return now - next >= 0 && nextExplain.compareAndSet(next, now + explainIntervalNanos);
+    }
+
+    private void explain(String shape, String sql, JsonArray arguments) {
+        connections.accept(conn -> {
+            if (conn.failed()) {
+                LOGGER.warn("explain skipped, no connection: " + shape, conn.cause());
+                return;
+            }
+            SQLConnection connection = conn.result();
+            Handler<AsyncResult<ResultSet>> handler = r -> {
+                connection.close();
+                if (r.succeeded()) {
+                    StringBuilder plan = new StringBuilder();
+                    for (JsonArray row : r.result().getResults()) {
+                        plan.append('\n').append(row.encode());
+                    }
+                    LOGGER.warn("explain " + shape + plan);
+                } else {
+                    LOGGER.warn("explain failed: " + shape, r.cause());
+                }
+            };
+            if (arguments == null) {
+                connection.query("EXPLAIN " + sql, handler);
+            } else {
+                connection.queryWithParams("EXPLAIN " + sql, arguments, handler);
+            }
+        });
+    }
+}
@@ -0,0 +1,141 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Objects;
+
+/**
+ * 预编译语句缓存配置，将statement_cache转换为连接池和驱动的对应配置。
+ * <pre>
+ * statement_cache: {size: 256, sql_limit: 2048, server_prepared: false}
+ * </pre>
+ * <ul>
+ * <li>c3p0(默认)：max_statements_per_connection = size，由连接池按物理连接缓存PreparedStatement，
+ * vertx每次执行prepareStatement/close时直接复用，相同形状的语句不再重复解析</li>
+ * <li>HikariCP：写入datasource属性，MySQL驱动 cachePrepStmts/prepStmtCacheSize/prepStmtCacheSqlLimit/useServerPrepStmts，
+ * PostgreSQL驱动 preparedStatementCacheQueries</li>
+ * <li>Agroal：以上驱动属性追加到url</li>
+ * </ul>
+ * 已显式配置的同名项与statement_cache不一致时抛出IllegalArgumentException。
+ *
+ * @author zhoudingyun
+ */
+public final class StatementCacheConfig {
+    public static final int DEFAULT_SQL_LIMIT = 2048;
+    public static final int MAX_SIZE = 10000;
+
+    private static final String HIKARI = "io.vertx.ext.jdbc.spi.impl.HikariCPDataSourceProvider";
+    private static final String AGROAL = "io.vertx.ext.jdbc.spi.impl.AgroalCPDataSourceProvider";
+
+    private StatementCacheConfig() {
+    }
+
+    /**
+     * 生成包含语句缓存配置的config，没有statement_cache时原样返回。
+     *
+     * @param config config
+     * @return config副本
+     */
+    public static JsonObject apply(JsonObject config) {
+        JsonObject cache = config.getJsonObject("statement_cache");
+        if (cache == null) {
+            return config;
+        }
+        int size = cache.getInteger("size", 0);
+        int sqlLimit = cache.getInteger("sql_limit", DEFAULT_SQL_LIMIT);
+        boolean serverPrepared = cache.getBoolean("server_prepared", false);
+        if (size < 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException(String.format("statement_cache.size(%d) must be between 0 and %d", size, MAX_SIZE));
+        }
+        if (sqlLimit <= 0) {
+            throw new IllegalArgumentException(String.format("statement_cache.sql_limit(%d) <= 0", sqlLimit));
+        }
+
+        JsonObject result = config.copy();
+        String provider = config.getString("provider_class");
+        if (HIKARI.equals(provider)) {
+            JsonObject properties = result.getJsonObject("datasource", new JsonObject());
+            driverProperties(url(config), size, sqlLimit, serverPrepared, properties);
+            result.put("datasource", properties);
+        } else if (AGROAL.equals(provider)) {
+            JsonObject properties = new JsonObject();
+            driverProperties(url(config), size, sqlLimit, serverPrepared, properties);
+            result.put("jdbcUrl", appendToUrl(url(config), properties));
+        } else if (provider == null || provider.endsWith("C3P0DataSourceProvider")) {
+            // 只限制单个连接的缓存数，max_statements(全局上限)保持为0
+            put(result, "max_statements_per_connection", size);
+        } else {
+            throw new IllegalArgumentException("statement_cache is not supported by " + provider);
+        }
+        return result;
+    }
+
+    private static String url(JsonObject config) {
+        String url = config.getString("jdbcUrl", config.getString("url"));
+        if (url == null) {
+            throw new IllegalArgumentException("url is null");
+        }
+        return url;
+    }
+
+    private static void driverProperties(String url, int size, int sqlLimit, boolean serverPrepared, JsonObject properties) {
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) {
+            put(properties, "cachePrepStmts", size > 0);
+            put(properties, "prepStmtCacheSize", size);
+            put(properties, "prepStmtCacheSqlLimit", sqlLimit);
+            put(properties, "useServerPrepStmts", serverPrepared);
+        } else if (url.startsWith("jdbc:postgresql:")) {
+            put(properties, "preparedStatementCacheQueries", size);
+        } else {
+            throw new IllegalArgumentException("statement_cache has no driver properties for " + url);
+        }
+    }
+
+    /**
+     * 追加url中没有的驱动属性，url中已有的同名参数与statement_cache不一致时报错。
+     */
+    private static String appendToUrl(String url, JsonObject properties) {
+        JsonObject parameters = urlParameters(url);
+        StringBuilder sb = new StringBuilder(url);
+        char separator = url.indexOf('?') < 0 ? '?' : '&';
+        for (String name : properties.fieldNames()) {
+            Object value = properties.getValue(name);
+            if (parameters.containsKey(name)) {
+                put(parameters, name, value);
+                continue;
+            }
+            sb.append(separator).append(name).append('=').append(value);
+            separator = '&';
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 解析url中?之后的参数 -> jdbc:mysql://host/db?a=1&b=2 -> {a: "1", b: "2"}
+     */
+    private static JsonObject urlParameters(String url) {
+        JsonObject parameters = new JsonObject();
+        int start = url.indexOf('?');
+        if (start < 0) {
+            return parameters;
+        }
+        for (String pair : url.substring(start + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                parameters.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * 写入配置项，已存在且值不同时报错。
+     */
+    private static void put(JsonObject json, String key, Object value) {
+        Object current = json.getValue(key);
+        if (current != null && !Objects.equals(String.valueOf(current), String.valueOf(value))) {
+            throw new IllegalArgumentException(String.format("%s(%s) conflicts with statement_cache (%s)", key, current, value));
+        }
+        json.put(key, value);
+    }
+}
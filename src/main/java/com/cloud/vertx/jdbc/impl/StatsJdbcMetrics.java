@@ -0,0 +1,178 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.JdbcMetrics;
+import com.cloud.vertx.jdbc.sql.SqlShape;
+import com.cloud.vertx.jdbc.util.Histogram;
+import io.vertx.core.json.JsonObject;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 内存指标实现，按语句形状记录耗时直方图、读写行数和失败次数，可注册为JMX MBean。
+ * 语句形状超过maxStatements后新形状计入"other"。
+ *
+ * @author zhoudingyun
+ */
+public class StatsJdbcMetrics implements JdbcMetrics, StatsJdbcMetricsMBean {
+    public static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+    private final int maxStatements;
+    private volatile Histogram acquire = new Histogram();
+    private final LongAdder acquireFailures = new LongAdder();
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+
+    public StatsJdbcMetrics() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * 构造方法。
+     *
+     * @param maxStatements 最多记录的语句形状数
+     */
+    public StatsJdbcMetrics(int maxStatements) {
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void connectionAcquired(long nanos, boolean succeeded) {
+        acquire.record(nanos);
+        if (!succeeded) {
+            acquireFailures.increment();
+        }
+    }
+
+    @Override
+    public void statementExecuted(String shape, long nanos, int rowsRead, int rowsWritten, boolean failed) {
+        StatementStats stats = statements.get(shape);
+        if (stats == null) {
+            stats = statements.computeIfAbsent(statements.size() < maxStatements ? shape : SqlShape.OTHER, key -> new StatementStats());
+        }
+        stats.latency.record(nanos);
+        stats.rowsRead.add(rowsRead);
+        stats.rowsWritten.add(rowsWritten);
+        if (failed) {
+            stats.errors.increment();
+        }
+    }
+
+    /**
+     * 注册为JMX MBean -> com.cloud.vertx.jdbc:type=JdbcMetrics,name=name
+     *
+     * @param name 名称，一般为数据源名
+     * @return StatsJdbcMetrics
+     */
+    public StatsJdbcMetrics registerMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot register jdbc metrics mbean " + name, e);
+        }
+        return this;
+    }
+
+    /**
+     * 注销JMX MBean。
+     *
+     * @param name 名称
+     */
+    public void unregisterMBean(String name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        } catch (JMException e) {
+            throw new IllegalStateException("cannot unregister jdbc metrics mbean " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("com.cloud.vertx.jdbc:type=JdbcMetrics,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * 统计信息，语句按总耗时降序排列。
+     *
+     * @return {acquire: {count, failed, mean, p50, p95, p99, max}, statements: [{sql, count, errors, rowsRead, rowsWritten, totalMillis, mean, p50, p95, p99, max}]}
+     */
+    public JsonObject snapshot() {
+        List<Map.Entry<String, StatementStats>> entries = new ArrayList<>(statements.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().latency.sum(), a.getValue().latency.sum()));
+        List<JsonObject> list = new ArrayList<>(entries.size());
+        for (Map.Entry<String, StatementStats> entry : entries) {
+            StatementStats stats = entry.getValue();
+            list.add(new JsonObject()
+                    .put("sql", entry.getKey())
+                    .put("errors", stats.errors.sum())
+                    .put("rowsRead", stats.rowsRead.sum())
+                    .put("rowsWritten", stats.rowsWritten.sum())
+                    .put("totalMillis", stats.latency.sum() / 1_000_000.0)
+                    .mergeIn(stats.latency.toJson()));
+        }
+        return new JsonObject()
+                .put("acquire", acquire.toJson().put("failed", acquireFailures.sum()))
+                .put("statements", list);
+    }
+
+    @Override
+    public long getAcquireCount() {
+        return acquire.count();
+    }
+
+    @Override
+    public long getAcquireFailures() {
+        return acquireFailures.sum();
+    }
+
+    @Override
+    public double getAcquireP99Millis() {
+        return acquire.percentile(0.99);
+    }
+
+    @Override
+    public long getStatementCount() {
+        return statements.values().stream().mapToLong(s -> s.latency.count()).sum();
+    }
+
+    @Override
+    public long getStatementErrors() {
+        return statements.values().stream().mapToLong(s -> s.errors.sum()).sum();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return statements.values().stream().mapToLong(s -> s.rowsRead.sum()).sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return statements.values().stream().mapToLong(s -> s.rowsWritten.sum()).sum();
+    }
+
+    @Override
+    public String getSnapshot() {
+        return snapshot().encode();
+    }
+
+    /**
+     * 清空统计。
+     */
+    @Override
+    public void reset() {
+        acquire = new Histogram();
+        acquireFailures.reset();
+        statements.clear();
+    }
+
+    private static final class StatementStats {
+        private final Histogram latency = new Histogram();
+        private final LongAdder rowsRead = new LongAdder();
+        private final LongAdder rowsWritten = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,32 @@
+package com.cloud.vertx.jdbc.impl;
+
+/**
+ * {@link StatsJdbcMetrics} 的JMX接口。
+ *
+ * @author zhoudingyun
+ */
+public interface StatsJdbcMetricsMBean {
+
+    long getAcquireCount();
+
+    long getAcquireFailures();
+
+    double getAcquireP99Millis();
+
+    long getStatementCount();
+
+    long getStatementErrors();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    /**
+     * 完整统计信息(json)。
+     *
+     * @return String
+     */
+    String getSnapshot();
+
+    void reset();
+}
@@ -0,0 +1,201 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 将ReadStream的行按batchSize攒成批写入数据库，批写入期间暂停读取，每commitEvery批提交一次。
+ * 列集合变化时提前结束当前批，保证同一批使用同一语句。
+ * 某批失败后停止读取，已提交的批保留，未提交的批由调用方回滚。
+ *
+ * @author zhoudingyun
+ */
+public class StreamImporter {
+    private final ReadStream<JsonObject> source;
+    private final int batchSize;
+    private final int commitEvery;
+    private final Handler<JsonObject> progress;
+    /**
+     * 写入一批列集合相同的行 -> 写入行数
+     */
+    private final Function<List<JsonObject>, Future<Integer>> write;
+    private final Supplier<Future<Void>> commit;
+    private final Promise<JsonObject> promise = Promise.promise();
+
+    private final Deque<List<JsonObject>> ready = new ArrayDeque<>();
+    private List<JsonObject> batch;
+    private Set<String> columns;
+    private boolean writing;
+    private boolean ended;
+    private boolean failed;
+
+    private long batches;
+    private long rows;
+    private long committed;
+    private long uncommitted;
+    private int uncommittedBatches;
+    private long start;
+
+    /**
+     * 构造方法。
+     *
+     * @param source      数据源，行的列名即表的列名
+     * @param batchSize   每批行数
+     * @param commitEvery 每多少批提交一次，小于等于0时全部写入后提交一次
+     * @param progress    每批完成后回调 -> {batch, batchRows, rows, committed, millis, rowsPerSecond[, error]}，可为null
+     * @param write       写入一批行
+     * @param commit      提交事务
+     */
+    public StreamImporter(ReadStream<JsonObject> source, int batchSize, int commitEvery, Handler<JsonObject> progress,
+                          Function<List<JsonObject>, Future<Integer>> write, Supplier<Future<Void>> commit) {
+        checkBatchSize(batchSize);
+        this.source = source;
+        this.batchSize = batchSize;
+        this.commitEvery = commitEvery;
+        this.progress = progress;
+        this.write = write;
+        this.commit = commit;
+        this.batch = new ArrayList<>(batchSize);
+    }
+
+    /**
+     * 校验每批行数，调用方可在暂停数据源之前校验。
+     *
+     * @param batchSize 每批行数
+     * @throws IllegalArgumentException batchSize小于等于0
+     */
+    public static void checkBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException(String.format("batchSize(%d) <= 0", batchSize));
+        }
+    }
+
+    /**
+     * 开始导入。
+     *
+     * @return Future<JsonObject> -> {batches, rows, committed, millis, rowsPerSecond}
+     */
+    public Future<JsonObject> start() {
+        start = System.nanoTime();
+        source.exceptionHandler(this::fail);
+        source.endHandler(v -> {
+            ended = true;
+            seal();
+            next();
+        });
+        source.handler(this::row);
+        source.resume();
+        return promise.future();
+    }
+
+    private void row(JsonObject row) {
+        if (failed) {
+            return;
+        }
+        if (!batch.isEmpty() && !columns.equals(row.fieldNames())) {
+            seal();
+        }
+        if (batch.isEmpty()) {
+            columns = row.fieldNames();
+        }
+        batch.add(row);
+        if (batch.size() >= batchSize) {
+            seal();
+        }
+        if (!ready.isEmpty()) {
+            source.pause();
+            next();
+        }
+    }
+
+    private void seal() {
+        if (!batch.isEmpty()) {
+            ready.add(batch);
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    /**
+     * 写入下一批，没有待写入的批时恢复读取，数据源结束时提交剩余的批。
+     */
+    private void next() {
+        if (writing || failed) {
+            return;
+        }
+        List<JsonObject> chunk = ready.poll();
+        if (chunk == null) {
+            if (ended) {
+                writing = true;
+                commit.get().onComplete(r -> {
+                    if (r.succeeded()) {
+                        committed += uncommitted;
+                        uncommitted = 0;
+                        promise.tryComplete(stats(new JsonObject().put("batches", batches)));
+                    } else {
+                        fail(r.cause());
+                    }
+                });
+            } else {
+                source.resume();
+            }
+            return;
+        }
+        writing = true;
+        long number = ++batches;
+        write.apply(chunk).compose(count -> {
+            rows += count;
+            uncommitted += count;
+            if (commitEvery > 0 && ++uncommittedBatches >= commitEvery) {
+                return commit.get().map(v -> {
+                    committed += uncommitted;
+                    uncommitted = 0;
+                    uncommittedBatches = 0;
+                    return count;
+                });
+            }
+            return Future.succeededFuture(count);
+        }).onComplete(r -> {
+            writing = false;
+            JsonObject report = stats(new JsonObject().put("batch", number).put("batchRows", chunk.size()));
+            if (r.failed()) {
+                report.put("error", String.valueOf(r.cause().getMessage()));
+                if (progress != null) {
+                    progress.handle(report);
+                }
+                fail(new RuntimeException(String.format("batch %d failed, %d rows committed", number, committed), r.cause()));
+                return;
+            }
+            if (progress != null) {
+                progress.handle(report);
+            }
+            next();
+        });
+    }
+
+    private void fail(Throwable cause) {
+        if (!failed) {
+            failed = true;
+            source.pause();
+            promise.tryFail(cause);
+        }
+    }
+
+    private JsonObject stats(JsonObject json) {
+        long nanos = Math.max(1, System.nanoTime() - start);
+        return json.put("rows", rows)
+                .put("committed", committed)
+                .put("millis", nanos / 1_000_000L)
+                .put("rowsPerSecond", rows * 1_000_000_000L / nanos);
+    }
+}
@@ -1,120 +1,179 @@
 package com.cloud.vertx.jdbc.sql;
 
 import com.cloud.vertx.jdbc.enums.Mode;
-import com.cloud.vertx.jdbc.util.ArrayListUtils;
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
 import io.vertx.core.json.JsonArray;
 
 import java.util.Arrays;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Collection;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * sql生成抽象类。
+ * 各子句片段保存在数组中，生成时直接写入线程复用的StringBuilder。
+ * 分页、upsert等与数据库相关的片段由 {@link Dialect} 生成，开启quote时表名和列名按方言引用。
  *
  * @author zhoudingyun
  */
 public abstract class AbstractSqlBuilder implements SqlBuilder {
+    private static final int BUFFER_SIZE = 256;
+    private static final int MAX_BUFFER_SIZE = 8192;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_SIZE));
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][\\w$]*(\\.[A-Za-z_][\\w$]*)?");
+
+    protected final Dialect dialect;
+    protected final boolean quote;
+
     protected Mode mode;
-    protected Deque<String> fields;
-    protected Deque<String> tables;
-    protected Deque<String> conditions;
-    protected Deque<String> groups;
-    protected Deque<String> having;
-    protected Deque<String> orders;
+    protected Fragments fields;
+    protected Fragments tables;
+    protected Fragments conditions;
+    protected Fragments groups;
+    protected Fragments having;
+    protected Fragments orders;
     protected int limit;
     protected int offset;
+    protected int rows;
     protected Map<String, String> funcs;
+    protected Fragments keys;
+    protected UpsertSyntax syntax;
+
+    protected AbstractSqlBuilder(Dialect dialect, boolean quote) {
+        this.dialect = dialect;
+        this.quote = quote;
+    }
+
+    /**
+     * 引用表名或列名，未开启quote或不是普通标识符(表达式、*、已引用)时原样返回。
+     *
+     * @param name user | db.user | count(1)
+     * @return `user` | `db`.`user` | count(1)
+     */
+    public String identifier(String name) {
+        if (!quote || !isIdentifier(name)) {
+            return name;
+        }
+        int dot = name.indexOf('.');
+        if (dot < 0) {
+            return dialect.quote(name);
+        }
+        return dialect.quote(name.substring(0, dot)) + '.' + dialect.quote(name.substring(dot + 1));
+    }
+
+    /**
+     * 是否为普通标识符。
+     *
+     * @param name id | user.id | count(1)
+     * @return true | true | false
+     */
+    public static boolean isIdentifier(String name) {
+        return name != null && IDENTIFIER.matcher(name).matches();
+    }
+
+    private void identifiersTo(StringBuilder sql, Fragments fragments, String prefix) {
+        for (int i = 0; i < fragments.size; i++) {
+            if (i != 0) {
+                sql.append(", ");
+            }
+            sql.append(prefix).append(identifier(fragments.items[i]));
+        }
+    }
 
     protected SqlBuilder start(Mode mode) {
         this.mode = mode;
-        fields = new LinkedList<>();
-        tables = new LinkedList<>();
-        conditions = new LinkedList<>();
-        groups = new LinkedList<>();
-        having = new LinkedList<>();
-        orders = new LinkedList<>();
+        if (fields == null) {
+            fields = new Fragments();
+            tables = new Fragments();
+            conditions = new Fragments();
+            groups = new Fragments();
+            having = new Fragments();
+            orders = new Fragments();
+            keys = new Fragments();
+        } else {
+            fields.clear();
+            tables.clear();
+            conditions.clear();
+            groups.clear();
+            having.clear();
+            orders.clear();
+            keys.clear();
+        }
         limit = offset = -1;
+        rows = 1;
         funcs = null;
+        syntax = null;
         return this;
     }
 
     public SqlBuilder addField(String field) {
-        fields.addLast(field);
+        fields.add(field);
         return this;
     }
 
     public SqlBuilder addTable(String table) {
-        tables.addLast(table);
+        tables.add(table);
         return this;
     }
 
     public SqlBuilder addCondition(String condition) {
-        conditions.addLast(condition);
+        conditions.add(condition);
         return this;
     }
 
     public SqlBuilder addGroup(String group) {
-        groups.addLast(group);
+        groups.add(group);
         return this;
     }
 
     public SqlBuilder addHaving(String having) {
-        this.having.addLast(having);
+        this.having.add(having);
         return this;
     }
 
     public SqlBuilder addOrder(String order) {
-        orders.addLast(order);
+        orders.add(order);
         return this;
     }
 
     public SqlBuilder setFields(String... fields) {
-        this.fields.clear();
-        this.fields.addAll(Arrays.asList(fields));
+        this.fields.set(fields);
         return this;
     }
 
     public SqlBuilder setFields(JsonArray fields) {
-        this.fields.clear();
-        this.fields.addAll(fields.getList());
+        this.fields.set(fields.getList());
         return this;
     }
 
     public SqlBuilder setFields(Map<String, String> funcs, String... fields) {
-        this.fields.clear();
-        this.fields.addAll(Arrays.asList(fields));
+        this.fields.set(fields);
         this.funcs = funcs;
         return this;
     }
 
     public SqlBuilder setTables(String... tables) {
-        this.tables.clear();
-        this.tables.addAll(Arrays.asList(tables));
+        this.tables.set(tables);
         return this;
     }
 
     public SqlBuilder setConditions(String... conditions) {
-        this.conditions.clear();
-        this.conditions.addAll(Arrays.asList(conditions));
+        this.conditions.set(conditions);
         return this;
     }
 
     public SqlBuilder setGroups(String... groups) {
-        this.groups.clear();
-        this.groups.addAll(Arrays.asList(groups));
+        this.groups.set(groups);
         return this;
     }
 
     public SqlBuilder setHaving(String... having) {
-        this.having.clear();
-        this.having.addAll(Arrays.asList(having));
+        this.having.set(having);
         return this;
     }
 
     public SqlBuilder setOrders(String... orders) {
-        this.orders.clear();
-        this.orders.addAll(Arrays.asList(orders));
+        this.orders.set(orders);
         return this;
     }
 
@@ -128,77 +187,311 @@ public abstract class AbstractSqlBuilder implements SqlBuilder {
         return this;
     }
 
-    // toStringSeq.java
-    private String selectToString() {
-        StringBuilder sql = new StringBuilder("select ");
-        sql
-                .append(ArrayListUtils.join(fields, ", ")).append(" from ")
-                .append(ArrayListUtils.join(tables, " join "));
+    public SqlBuilder setKeys(String... keys) {
+        this.keys.set(keys);
+        return this;
+    }
+
+    public SqlBuilder setSyntax(UpsertSyntax syntax) {
+        this.syntax = syntax;
+        return this;
+    }
+
+    public SqlBuilder setRows(int rows) {
+        if (rows < 1) {
+            throw new IllegalArgumentException(String.format("rows(%d) < 1", rows));
+        }
+        this.rows = rows;
+        return this;
+    }
+
+    private void selectTo(StringBuilder sql) {
+        sql.append("select ");
+        dialect.topTo(sql, limit, offset);
+        identifiersTo(sql, fields, "");
+        sql.append(" from ");
+        for (int i = 0; i < tables.size; i++) {
+            sql.append(i == 0 ? "" : " join ").append(identifier(tables.items[i]));
+        }
         if (!conditions.isEmpty()) {
-            sql.append(" where ").append(ArrayListUtils.join(conditions, " and "));
+            sql.append(" where ");
+            conditions.appendTo(sql, " and ");
         }
         if (!groups.isEmpty()) {
-            sql.append(" group by ").append(ArrayListUtils.join(groups, ", "));
+            sql.append(" group by ");
+            groups.appendTo(sql, ", ");
             if (!having.isEmpty()) {
-                sql.append(" having ").append(ArrayListUtils.join(having, " and "));
+                sql.append(" having ");
+                having.appendTo(sql, " and ");
             }
         }
         if (!orders.isEmpty()) {
-            sql.append(" order by ").append(ArrayListUtils.join(orders, ", "));
+            sql.append(" order by ");
+            orders.appendTo(sql, ", ");
+        }
+        dialect.limitTo(sql, limit, offset, !orders.isEmpty());
+    }
+
+    private void insertTo(StringBuilder sql) {
+        sql.append("insert into ").append(identifier(tables.getFirst())).append(" (");
+        identifiersTo(sql, fields, "");
+        sql.append(") values ");
+        int start = sql.length();
+        valuesTo(sql);
+        int end = sql.length();
+        for (int row = 1; row < rows; row++) {
+            sql.append(", ");
+            // 多行values各行占位符相同，直接复制第一行
+            for (int i = start; i < end; i++) {
+                sql.append(sql.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * 冲突时更新非冲突列，全部列都是冲突列时不更新。
+     */
+    private void upsertTo(StringBuilder sql) {
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("upsert requires conflict keys");
         }
-        if (limit > 0) {
-            sql.append(" limit ").append(Integer.toString(limit));
+        UpsertSyntax syntax = this.syntax == null ? dialect.upsertSyntax() : this.syntax;
+        if (syntax == UpsertSyntax.Merge) {
+            mergeTo(sql);
+            return;
         }
-        if (offset > -1) {
-            sql.append(" offset ").append(Integer.toString(offset));
+        insertTo(sql);
+        boolean updates = false;
+        if (syntax == UpsertSyntax.OnConflict) {
+            sql.append(" on conflict (");
+            identifiersTo(sql, keys, "");
+            sql.append(')');
+            for (int i = 0; i < fields.size; i++) {
+                if (!keys.contains(fields.items[i])) {
+                    String field = identifier(fields.items[i]);
+                    sql.append(updates ? ", " : " do update set ").append(field).append(" = excluded.").append(field);
+                    updates = true;
+                }
+            }
+            if (!updates) {
+                sql.append(" do nothing");
+            }
+        } else {
+            sql.append(" on duplicate key update ");
+            for (int i = 0; i < fields.size; i++) {
+                if (!keys.contains(fields.items[i])) {
+                    String field = identifier(fields.items[i]);
+                    sql.append(updates ? ", " : "").append(field).append(" = values(").append(field).append(')');
+                    updates = true;
+                }
+            }
+            if (!updates) {
+                String key = identifier(keys.getFirst());
+                sql.append(key).append(" = ").append(key);
+            }
         }
+    }
 
-        return sql.toString();
+    private void mergeTo(StringBuilder sql) {
+        sql.append("merge into ").append(identifier(tables.getFirst())).append(" t using (");
+        int start = sql.length();
+        if (dialect.mergeValues()) {
+            sql.append("values ");
+            valuesTo(sql);
+        } else {
+            // 不支持values行构造器时每行生成 select ? a, ? b from dual
+            sql.append("select ");
+            for (int i = 0; i < fields.size; i++) {
+                sql.append(i == 0 ? "" : ", ").append(placeholder(i)).append(' ').append(identifier(fields.items[i]));
+            }
+            sql.append(" from dual");
+        }
+        int end = sql.length();
+        String delimiter = dialect.mergeValues() ? ", " : " union all ";
+        int rowStart = dialect.mergeValues() ? start + "values ".length() : start;
+        for (int row = 1; row < rows; row++) {
+            sql.append(delimiter);
+            for (int i = rowStart; i < end; i++) {
+                sql.append(sql.charAt(i));
+            }
+        }
+        sql.append(") s");
+        if (dialect.mergeValues()) {
+            sql.append(" (");
+            identifiersTo(sql, fields, "");
+            sql.append(')');
+        }
+        sql.append(" on (");
+        for (int i = 0; i < keys.size; i++) {
+            String key = identifier(keys.items[i]);
+            sql.append(i == 0 ? "" : " and ").append("t.").append(key).append(" = s.").append(key);
+        }
+        sql.append(')');
+        boolean updates = false;
+        for (int i = 0; i < fields.size; i++) {
+            if (!keys.contains(fields.items[i])) {
+                String field = identifier(fields.items[i]);
+                sql.append(updates ? ", " : " when matched then update set ").append(field).append(" = s.").append(field);
+                updates = true;
+            }
+        }
+        sql.append(" when not matched then insert (");
+        identifiersTo(sql, fields, "");
+        sql.append(") values (");
+        identifiersTo(sql, fields, "s.");
+        sql.append(')').append(dialect.mergeTerminator());
     }
 
-    private String insertToString() {
-        StringBuilder sql = new StringBuilder("insert into ");
-        sql
-                .append(tables.getFirst()).append(" (")
-                .append(ArrayListUtils.join(fields, ", ")).append(") values (")
-                .append(ArrayListUtils.join(ArrayListUtils.map(fields, "?", funcs), ", ")).append(")");
-        return sql.toString();
+    private void valuesTo(StringBuilder sql) {
+        sql.append('(');
+        for (int i = 0; i < fields.size; i++) {
+            if (i != 0) {
+                sql.append(", ");
+            }
+            sql.append(placeholder(i));
+        }
+        sql.append(')');
     }
 
-    private String updateToString() {
-        StringBuilder sql = new StringBuilder("update ");
-        sql
-                .append(tables.getFirst()).append(" set ")
-                .append(ArrayListUtils.join(ArrayListUtils.map(fields, "%s = ?"), ", "));
+    private String placeholder(int i) {
+        String template = funcs == null ? null : funcs.get(fields.items[i]);
+        return template == null ? "?" : String.format(template, fields.items[i]);
+    }
 
+    private void updateTo(StringBuilder sql) {
+        sql.append("update ").append(identifier(tables.getFirst())).append(" set ");
+        for (int i = 0; i < fields.size; i++) {
+            if (i != 0) {
+                sql.append(", ");
+            }
+            sql.append(identifier(fields.items[i])).append(" = ?");
+        }
         if (!conditions.isEmpty()) {
-            sql.append(" where ").append(ArrayListUtils.join(conditions, " and "));
+            sql.append(" where ");
+            conditions.appendTo(sql, " and ");
         }
-        return sql.toString();
     }
 
-    private String deleteToString() {
-        StringBuilder sql = new StringBuilder("delete from ");
-        sql.append(tables.getFirst());
+    private void deleteTo(StringBuilder sql) {
+        sql.append("delete from ").append(identifier(tables.getFirst()));
         if (!conditions.isEmpty()) {
-            sql.append(" where ").append(ArrayListUtils.join(conditions, " and "));
+            sql.append(" where ");
+            conditions.appendTo(sql, " and ");
         }
-        return sql.toString();
     }
 
-    @Override
-    public String toString() {
+    /**
+     * 将sql写入指定的StringBuilder。
+     *
+     * @param sql 目标StringBuilder
+     * @return StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sql) {
         switch (mode) {
             case Select:
-                return selectToString();
+                selectTo(sql);
+                break;
             case Insert:
-                return insertToString();
+                insertTo(sql);
+                break;
             case Update:
-                return updateToString();
+                updateTo(sql);
+                break;
             case Delete:
-                return deleteToString();
+                deleteTo(sql);
+                break;
+            case Upsert:
+                upsertTo(sql);
+                break;
             default:
-                return "";
+                break;
+        }
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sql = BUFFER.get();
+        sql.setLength(0);
+        String result = appendTo(sql).toString();
+        if (sql.capacity() > MAX_BUFFER_SIZE) {
+            BUFFER.set(new StringBuilder(BUFFER_SIZE));
+        }
+        return result;
+    }
+
+    /**
+     * 基于数组的sql片段列表。
+     */
+    protected static final class Fragments {
+        private static final String[] EMPTY = new String[0];
+
+        private String[] items = EMPTY;
+        private int size;
+
+        public void add(String item) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size == 0 ? 8 : size << 1);
+            }
+            items[size++] = item;
+        }
+
+        public void set(String... values) {
+            clear();
+            if (items.length < values.length) {
+                items = new String[values.length];
+            }
+            for (String value : values) {
+                add(value);
+            }
+        }
+
+        public void set(Collection<?> values) {
+            clear();
+            for (Object value : values) {
+                add(String.valueOf(value));
+            }
+        }
+
+        public boolean contains(String item) {
+            for (int i = 0; i < size; i++) {
+                if (items[i].equalsIgnoreCase(item)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String getFirst() {
+            return items[0];
+        }
+
+        public String removeLast() {
+            String item = items[--size];
+            items[size] = null;
+            return item;
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void clear() {
+            Arrays.fill(items, 0, size, null);
+            size = 0;
+        }
+
+        public void appendTo(StringBuilder sql, String delimiter) {
+            for (int i = 0; i < size; i++) {
+                if (i != 0) {
+                    sql.append(delimiter);
+                }
+                sql.append(items[i]);
+            }
         }
     }
 }
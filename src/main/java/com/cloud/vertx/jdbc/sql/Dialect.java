@@ -0,0 +1,111 @@
+package com.cloud.vertx.jdbc.sql;
+
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
+
+/**
+ * 数据库方言，{@link TSqlBuilder} 通过方言生成分页、upsert、returning等与数据库相关的语句片段。
+ * 内置实现见 {@link StandardDialect}，其他数据库可自行实现后通过 {@code CurdRepositoryImpl#setDialect} 设置。
+ *
+ * @author zhoudingyun
+ */
+public interface Dialect {
+
+    /**
+     * 方言名称。
+     *
+     * @return MySQL | PostgreSQL | H2 | Oracle | SqlServer
+     */
+    String name();
+
+    /**
+     * 在select之后追加数量限制，用于 select top n 形式的数据库。
+     *
+     * @param sql    已写入 "select " 的语句
+     * @param limit  数量，小于等于0表示不限
+     * @param offset 偏移量，小于0表示无偏移
+     */
+    default void topTo(StringBuilder sql, int limit, int offset) {
+    }
+
+    /**
+     * 在语句末尾追加字面量分页。
+     *
+     * @param sql     select语句
+     * @param limit   数量，小于等于0表示不限
+     * @param offset  偏移量，小于0表示无偏移
+     * @param ordered 语句是否已有order by
+     */
+    void limitTo(StringBuilder sql, int limit, int offset, boolean ordered);
+
+    /**
+     * 分页子句，参数依次为偏移量、数量，与 {@code queryPageWithParams} 追加参数的顺序一致。
+     *
+     * @param ordered 语句是否已有order by
+     * @return " limit ?, ?" | " offset ? rows fetch next ? rows only"
+     */
+    String pageClause(boolean ordered);
+
+    /**
+     * 数量限制子句，参数为数量。
+     *
+     * @param ordered 语句是否已有order by
+     * @return " limit ?" | " fetch first ? rows only"
+     */
+    String limitClause(boolean ordered);
+
+    /**
+     * 单条语句最大参数个数。
+     *
+     * @return int
+     */
+    int maxParameters();
+
+    /**
+     * 单条insert语句最多values行数，1表示不支持多行values。
+     *
+     * @return int
+     */
+    int maxInsertRows();
+
+    /**
+     * 默认upsert语法，配置了upsert_syntax时以配置为准。
+     *
+     * @return UpsertSyntax
+     */
+    UpsertSyntax upsertSyntax();
+
+    /**
+     * merge语句的数据源是否可用 values 行构造器，否则使用 select ... from dual union all。
+     *
+     * @return boolean
+     */
+    default boolean mergeValues() {
+        return true;
+    }
+
+    /**
+     * merge语句结束符，SQL Server要求以分号结束。
+     *
+     * @return String
+     */
+    default String mergeTerminator() {
+        return "";
+    }
+
+    /**
+     * 改写insert语句使其返回指定列，不支持时返回null，由调用方使用自增主键。
+     *
+     * @param insertSql insert语句
+     * @param columns   返回列 -> [id, created_at]
+     * @return insert ... returning id, created_at | null
+     */
+    String returning(String insertSql, String[] columns);
+
+    /**
+     * 引用标识符。
+     *
+     * @param identifier 表名或列名 -> user
+     * @return `user` | "user" | [user]
+     */
+    String quote(String identifier);
+}
@@ -1,5 +1,6 @@
 package com.cloud.vertx.jdbc.sql;
 
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
 import io.vertx.core.json.JsonArray;
 
 import java.util.Map;
@@ -18,6 +19,12 @@ public interface SqlBuilder {
 
     public SqlBuilder values(Map<String, String> args, String... columns);
 
+    public SqlBuilder rows(int rows);
+
+    public SqlBuilder upsert(UpsertSyntax syntax);
+
+    public SqlBuilder onConflict(String... keys);
+
     public SqlBuilder update(String table);
 
     public SqlBuilder set(String... columns);
@@ -0,0 +1,123 @@
+package com.cloud.vertx.jdbc.sql;
+
+import com.cloud.vertx.jdbc.enums.Mode;
+import com.cloud.vertx.jdbc.util.LruCache;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * 已生成sql语句缓存。
+ * 以(mode, 方言, 表名, 列, 条件, 排序...)为键，相同形状的语句只生成一次。
+ * 同时保存生成语句所用的方言，共用缓存的repository方言一致，切换方言后旧语句不再命中。
+ *
+ * @author zhoudingyun
+ */
+public class SqlCache {
+    public static final int DEFAULT_SIZE = 512;
+
+    private final LruCache<Key, String> cache;
+    private volatile Dialect dialect = StandardDialect.MySQL;
+
+    /**
+     * 构造方法。
+     *
+     * @param maxSize 最大缓存语句数，小于等于0时不缓存
+     */
+    public SqlCache(int maxSize) {
+        this.cache = maxSize > 0 ? new LruCache<>(maxSize) : null;
+    }
+
+    /**
+     * 获取sql语句，缓存中不存在时调用renderer生成。
+     *
+     * @param mode     sql类型
+     * @param renderer sql生成函数
+     * @param parts    语句形状 -> 表名, 列[], 条件...
+     * @return sql语句
+     */
+    public String get(Mode mode, Supplier<String> renderer, Object... parts) {
+        if (cache == null) {
+            return renderer.get();
+        }
+        return cache.computeIfAbsent(new Key(mode, dialect, parts), key -> renderer.get());
+    }
+
+    /**
+     * 生成语句所用的方言。
+     *
+     * @return Dialect
+     */
+    public Dialect dialect() {
+        return dialect;
+    }
+
+    /**
+     * 切换方言，方言变化时清空缓存。
+     *
+     * @param dialect 方言
+     * @return 方言是否变化
+     */
+    public boolean dialect(Dialect dialect) {
+        if (dialect == null || dialect.equals(this.dialect)) {
+            return false;
+        }
+        this.dialect = dialect;
+        clear();
+        return true;
+    }
+
+    /**
+     * 清空缓存。
+     */
+    public void clear() {
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * 缓存统计信息。
+     *
+     * @return {size, maxSize, hits, misses, evictions, expirations}
+     */
+    public JsonObject stats() {
+        if (cache == null) {
+            return new JsonObject().put("size", 0).put("maxSize", 0)
+                    .put("hits", 0L).put("misses", 0L).put("evictions", 0L).put("expirations", 0L);
+        }
+        return cache.stats();
+    }
+
+    private static final class Key {
+        private final Mode mode;
+        private final Dialect dialect;
+        private final Object[] parts;
+        private final int hash;
+
+        private Key(Mode mode, Dialect dialect, Object[] parts) {
+            this.mode = mode;
+            this.dialect = dialect;
+            this.parts = parts;
+            this.hash = 31 * (31 * mode.hashCode() + dialect.hashCode()) + Arrays.deepHashCode(parts);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && mode == other.mode && dialect.equals(other.dialect) && Arrays.deepEquals(parts, other.parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.cloud.vertx.jdbc.sql;
+
+import com.cloud.vertx.jdbc.util.LruCache;
+
+import java.util.regex.Pattern;
+
+/**
+ * sql语句归一化，用于按语句形状汇总指标。
+ * 字符串和数字字面量替换为?，in列表和多行values合并为一组，连续空白合并为一个空格。
+ *
+ * @author zhoudingyun
+ */
+public final class SqlShape {
+    /**
+     * 无法归一化(sql为null)或超出统计上限的语句归入此形状。
+     */
+    public static final String OTHER = "other";
+
+    private static final int CACHE_SIZE = 2048;
+    private static final LruCache<String, String> CACHE = new LruCache<>(CACHE_SIZE);
+
+    private static final Pattern STRING = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern ROWS = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+
+    private SqlShape() {
+    }
+
+    /**
+     * 归一化sql语句。
+     *
+     * @param sql select * from user where id in (?, ?, ?) and name = 'a'
+     * @return select * from user where id in (?) and name = ?，sql为null时为 {@link #OTHER}
+     */
+    public static String of(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        return CACHE.computeIfAbsent(sql, SqlShape::normalize);
+    }
+
+    private static String normalize(String sql) {
+        String shape = STRING.matcher(sql).replaceAll("?");
+        shape = NUMBER.matcher(shape).replaceAll("?");
+        shape = WHITESPACE.matcher(shape).replaceAll(" ").trim();
+        shape = LIST.matcher(shape).replaceAll("(?)");
+        return ROWS.matcher(shape).replaceAll("(?)");
+    }
+}
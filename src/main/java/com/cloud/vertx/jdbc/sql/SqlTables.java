@@ -0,0 +1,75 @@
+package com.cloud.vertx.jdbc.sql;
+
+import com.cloud.vertx.jdbc.util.LruCache;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 提取sql语句涉及的表名，用于按表失效缓存。
+ * 识别from(含逗号分隔的多表)、join、update、into、table后的表名，去掉schema前缀和引号并转为小写。
+ *
+ * @author zhoudingyun
+ */
+public final class SqlTables {
+    private static final int CACHE_SIZE = 2048;
+    private static final LruCache<String, Set<String>> CACHE = new LruCache<>(CACHE_SIZE);
+
+    private static final Pattern TABLE = Pattern.compile(
+            "\\b(from|join|update|into|table)\\s+((?:[`\"\\[]?[\\w$]+[`\"\\]]?\\.)?[`\"\\[]?[\\w$]+[`\"\\]]?)", Pattern.CASE_INSENSITIVE);
+    /**
+     * from子句中逗号后的表名 -> from a x, b y
+     */
+    private static final Pattern NEXT = Pattern.compile(
+            "\\G(?:\\s+(?:as\\s+)?(?!where\\b|join\\b|inner\\b|left\\b|right\\b|full\\b|cross\\b|on\\b|group\\b|order\\b|limit\\b|having\\b|union\\b|for\\b|set\\b)[\\w$]+)?\\s*,\\s*((?:[`\"\\[]?[\\w$]+[`\"\\]]?\\.)?[`\"\\[]?[\\w$]+[`\"\\]]?)",
+            Pattern.CASE_INSENSITIVE);
+
+    private SqlTables() {
+    }
+
+    /**
+     * 提取表名。
+     *
+     * @param sql select * from db.user u join `order` o on ... where id in (select uid from address)
+     * @return [user, order, address]
+     */
+    public static Set<String> of(String sql) {
+        if (sql == null) {
+            return Collections.emptySet();
+        }
+        return CACHE.computeIfAbsent(sql, SqlTables::extract);
+    }
+
+    private static Set<String> extract(String sql) {
+        Set<String> tables = new LinkedHashSet<>();
+        Matcher m = TABLE.matcher(sql);
+        while (m.find()) {
+            tables.add(normalize(m.group(2)));
+            if ("from".equalsIgnoreCase(m.group(1))) {
+                Matcher next = NEXT.matcher(sql);
+                next.region(m.end(), sql.length());
+                while (next.find()) {
+                    tables.add(normalize(next.group(1)));
+                    next.region(next.end(), sql.length());
+                }
+            }
+        }
+        tables.remove("select");
+        tables.remove("dual");
+        return Collections.unmodifiableSet(tables);
+    }
+
+    private static String normalize(String name) {
+        int dot = name.lastIndexOf('.');
+        String table = dot < 0 ? name : name.substring(dot + 1);
+        StringBuilder sb = new StringBuilder(table.length());
+        for (int i = 0; i < table.length(); i++) {
+            char c = table.charAt(i);
+            if (c != '`' && c != '"' && c != '[' && c != ']') {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,260 @@
+package com.cloud.vertx.jdbc.sql;
+
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
+
+/**
+ * 内置方言。
+ * <pre>
+ * dialect: mysql | postgresql | h2 | oracle | sqlserver
+ * </pre>
+ * 未配置时按jdbc url判断，启动后再按 {@link java.sql.DatabaseMetaData#getDatabaseProductName()} 校正。
+ *
+ * @author zhoudingyun
+ */
+public enum StandardDialect implements Dialect {
+    /**
+     * MySQL/MariaDB，limit ?, ?。
+     */
+    MySQL("mysql", 65535, Integer.MAX_VALUE, UpsertSyntax.OnDuplicateKey) {
+        @Override
+        public String pageClause(boolean ordered) {
+            return " limit ?, ?";
+        }
+
+        @Override
+        public String returning(String insertSql, String[] columns) {
+            return null;
+        }
+
+        @Override
+        public String quote(String identifier) {
+            return '`' + identifier + '`';
+        }
+    },
+    /**
+     * PostgreSQL，insert ... returning。
+     */
+    PostgreSQL("postgresql", 32767, Integer.MAX_VALUE, UpsertSyntax.OnConflict) {
+        @Override
+        public String returning(String insertSql, String[] columns) {
+            return insertSql + " returning " + String.join(", ", columns);
+        }
+    },
+    /**
+     * H2，select ... from final table (insert ...)。
+     */
+    H2("h2", 32767, Integer.MAX_VALUE, UpsertSyntax.Merge) {
+        @Override
+        public String returning(String insertSql, String[] columns) {
+            return "select " + String.join(", ", columns) + " from final table (" + insertSql + ")";
+        }
+    },
+    /**
+     * Oracle 12c+，fetch first，不支持多行values。
+     */
+    Oracle("oracle", 65535, 1, UpsertSyntax.Merge) {
+        @Override
+        public void limitTo(StringBuilder sql, int limit, int offset, boolean ordered) {
+            fetchTo(sql, limit, offset);
+        }
+
+        @Override
+        public String limitClause(boolean ordered) {
+            return " fetch first ? rows only";
+        }
+
+        @Override
+        public boolean mergeValues() {
+            return false;
+        }
+
+        @Override
+        public String returning(String insertSql, String[] columns) {
+            return null;
+        }
+    },
+    /**
+     * SQL Server 2012+，select top n，offset fetch要求order by。
+     */
+    SqlServer("sqlserver", 2100, 1000, UpsertSyntax.Merge) {
+        @Override
+        public void topTo(StringBuilder sql, int limit, int offset) {
+            if (limit > 0 && offset < 0) {
+                sql.append("top ").append(limit).append(' ');
+            }
+        }
+
+        @Override
+        public void limitTo(StringBuilder sql, int limit, int offset, boolean ordered) {
+            if (offset < 0) {
+                return;
+            }
+            if (!ordered) {
+                sql.append(NO_ORDER);
+            }
+            fetchTo(sql, limit, offset);
+        }
+
+        @Override
+        public String pageClause(boolean ordered) {
+            return ordered ? OFFSET_FETCH : NO_ORDER + OFFSET_FETCH;
+        }
+
+        @Override
+        public String limitClause(boolean ordered) {
+            return (ordered ? "" : NO_ORDER) + " offset 0 rows fetch next ? rows only";
+        }
+
+        @Override
+        public String mergeTerminator() {
+            return ";";
+        }
+
+        @Override
+        public String returning(String insertSql, String[] columns) {
+            int values = insertSql.indexOf(") values ");
+            if (values < 0) {
+                return null;
+            }
+            StringBuilder sql = new StringBuilder(insertSql.length() + columns.length * 16).append(insertSql, 0, values + 1).append(" output");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? " inserted." : ", inserted.").append(columns[i]);
+            }
+            return sql.append(insertSql, values + 1, insertSql.length()).toString();
+        }
+
+        @Override
+        public String quote(String identifier) {
+            return '[' + identifier + ']';
+        }
+    };
+
+    private static final String OFFSET_FETCH = " offset ? rows fetch next ? rows only";
+    private static final String NO_ORDER = " order by (select null)";
+
+    private final String value;
+    private final int maxParameters;
+    private final int maxInsertRows;
+    private final UpsertSyntax upsertSyntax;
+
+    StandardDialect(String value, int maxParameters, int maxInsertRows, UpsertSyntax upsertSyntax) {
+        this.value = value;
+        this.maxParameters = maxParameters;
+        this.maxInsertRows = maxInsertRows;
+        this.upsertSyntax = upsertSyntax;
+    }
+
+    /**
+     * 解析配置值。
+     *
+     * @param value mysql | postgresql | h2 | oracle | sqlserver
+     * @return StandardDialect
+     */
+    public static StandardDialect of(String value) {
+        for (StandardDialect dialect : values()) {
+            if (dialect.value.equalsIgnoreCase(value)) {
+                return dialect;
+            }
+        }
+        throw new IllegalArgumentException("unknown dialect: " + value);
+    }
+
+    /**
+     * 按jdbc url判断方言。
+     *
+     * @param url jdbc:postgresql://localhost/test
+     * @return StandardDialect | 无法判断时返回null
+     */
+    public static StandardDialect fromUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        String lower = url.toLowerCase();
+        if (lower.startsWith("jdbc:mysql:") || lower.startsWith("jdbc:mariadb:")) {
+            return MySQL;
+        } else if (lower.startsWith("jdbc:postgresql:") || lower.startsWith("jdbc:pgsql:")) {
+            return PostgreSQL;
+        } else if (lower.startsWith("jdbc:h2:")) {
+            return H2;
+        } else if (lower.startsWith("jdbc:oracle:")) {
+            return Oracle;
+        } else if (lower.startsWith("jdbc:sqlserver:") || lower.startsWith("jdbc:jtds:sqlserver:")) {
+            return SqlServer;
+        }
+        return null;
+    }
+
+    /**
+     * 按数据库产品名判断方言。
+     *
+     * @param productName {@link java.sql.DatabaseMetaData#getDatabaseProductName()} -> PostgreSQL
+     * @return StandardDialect | 无法判断时返回null
+     */
+    public static StandardDialect fromProductName(String productName) {
+        if (productName == null) {
+            return null;
+        }
+        String lower = productName.toLowerCase();
+        if (lower.contains("mysql") || lower.contains("mariadb")) {
+            return MySQL;
+        } else if (lower.contains("postgres")) {
+            return PostgreSQL;
+        } else if (lower.startsWith("h2")) {
+            return H2;
+        } else if (lower.contains("oracle")) {
+            return Oracle;
+        } else if (lower.contains("sql server")) {
+            return SqlServer;
+        }
+        return null;
+    }
+
+    @Override
+    public void limitTo(StringBuilder sql, int limit, int offset, boolean ordered) {
+        if (limit > 0) {
+            sql.append(" limit ").append(limit);
+        }
+        if (offset > -1) {
+            sql.append(" offset ").append(offset);
+        }
+    }
+
+    @Override
+    public String pageClause(boolean ordered) {
+        return OFFSET_FETCH;
+    }
+
+    @Override
+    public String limitClause(boolean ordered) {
+        return " limit ?";
+    }
+
+    @Override
+    public int maxParameters() {
+        return maxParameters;
+    }
+
+    @Override
+    public int maxInsertRows() {
+        return maxInsertRows;
+    }
+
+    @Override
+    public UpsertSyntax upsertSyntax() {
+        return upsertSyntax;
+    }
+
+    @Override
+    public String quote(String identifier) {
+        return '"' + identifier + '"';
+    }
+
+    private static void fetchTo(StringBuilder sql, int limit, int offset) {
+        if (offset > -1) {
+            sql.append(" offset ").append(offset).append(" rows");
+        }
+        if (limit > 0) {
+            sql.append(offset > -1 ? " fetch next " : " fetch first ").append(limit).append(" rows only");
+        }
+    }
+}
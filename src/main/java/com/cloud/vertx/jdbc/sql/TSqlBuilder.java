@@ -1,10 +1,9 @@
 package com.cloud.vertx.jdbc.sql;
 
 import com.cloud.vertx.jdbc.enums.Mode;
-import com.cloud.vertx.jdbc.util.ArrayListUtils;
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
 import io.vertx.core.json.JsonArray;
 
-import java.util.Arrays;
 import java.util.Map;
 
 /**
@@ -13,6 +12,23 @@ import java.util.Map;
  * @author zhoudingyun
  */
 public class TSqlBuilder extends AbstractSqlBuilder {
+
+    /**
+     * 使用MySQL方言，不引用标识符。
+     */
+    public TSqlBuilder() {
+        this(StandardDialect.MySQL, false);
+    }
+
+    /**
+     * 构造方法。
+     *
+     * @param dialect 方言
+     * @param quote   是否按方言引用表名和列名
+     */
+    public TSqlBuilder(Dialect dialect, boolean quote) {
+        super(dialect, quote);
+    }
     @Override
     public SqlBuilder insert() {
         return start(Mode.Insert);
@@ -33,6 +49,22 @@ public class TSqlBuilder extends AbstractSqlBuilder {
         return setFields(args, columns);
     }
 
+    @Override
+    public SqlBuilder rows(int rows) {
+        return setRows(rows);
+    }
+
+    @Override
+    public SqlBuilder upsert(UpsertSyntax syntax) {
+        start(Mode.Upsert);
+        return setSyntax(syntax);
+    }
+
+    @Override
+    public SqlBuilder onConflict(String... keys) {
+        return setKeys(keys);
+    }
+
     @Override
     public SqlBuilder update(String table) {
         start(Mode.Update);
@@ -81,9 +113,14 @@ public class TSqlBuilder extends AbstractSqlBuilder {
 
     @Override
     public SqlBuilder on(String... conditions) {
-        String table = tables.removeLast();
-        return addTable(table.concat(" on ").concat(
-                ArrayListUtils.join(Arrays.asList(conditions), "and")));
+        StringBuilder table = new StringBuilder(tables.removeLast()).append(" on ");
+        for (int i = 0; i < conditions.length; i++) {
+            if (i != 0) {
+                table.append(" and ");
+            }
+            table.append(conditions[i]);
+        }
+        return addTable(table.toString());
     }
 
     @Override
@@ -298,6 +298,28 @@ public final class ArrayListUtils {
                 buffer.clear();
             }
         }
+        if (!buffer.isEmpty()) {
+            to.add(join(buffer, delimiter));
+        }
+        return to;
+    }
+
+    /**
+     * 拆分List，每份至多包含n个元素，返回原List的子视图。
+     *
+     * @param <E>  元素类型。
+     * @param from 给定List。
+     * @param n    子元素个数。
+     * @return 拆分后的子List。
+     */
+    public static <E> List<List<E>> partition(List<E> from, int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException(String.format("n(%d) <= 0", n));
+        }
+        List<List<E>> to = new ArrayList<>((from.size() + n - 1) / n);
+        for (int i = 0; i < from.size(); i += n) {
+            to.add(from.subList(i, Math.min(i + n, from.size())));
+        }
         return to;
     }
 }
@@ -0,0 +1,206 @@
+package com.cloud.vertx.jdbc.util;
+
+import com.cloud.vertx.jdbc.RowMapper;
+import io.vertx.core.json.JsonArray;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.*;
+import java.util.*;
+
+/**
+ * 按列名映射到JavaBean的行映射函数。
+ * 列名忽略大小写和下划线匹配setter或字段(user_name -> userName)，
+ * 列下标与属性的绑定按(类, 列名列表)缓存，每行只做下标读取和赋值。
+ *
+ * @author zhoudingyun
+ */
+public final class BeanRowMapper<T> implements RowMapper<T> {
+    private static final int CACHE_SIZE = 512;
+    private static final LruCache<List<Object>, BeanRowMapper<?>> CACHE = new LruCache<>(CACHE_SIZE);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Class<T> type;
+    private final MethodHandle constructor;
+    private final Property[] properties;
+
+    private BeanRowMapper(Class<T> type, List<String> columns) {
+        this.type = type;
+        try {
+            Constructor<T> c = type.getDeclaredConstructor();
+            c.setAccessible(true);
+            this.constructor = MethodHandles.lookup().unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(type.getName() + " has no accessible default constructor", e);
+        }
+        Map<String, Property> candidates = properties(type);
+        this.properties = new Property[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            properties[i] = candidates.get(normalize(columns.get(i)));
+        }
+    }
+
+    /**
+     * 获取类型在指定列上的映射函数。
+     *
+     * @param type    目标类型，需有无参构造方法
+     * @param columns 结果集列名 -> {@link io.vertx.ext.sql.ResultSet#getColumnNames()}
+     * @param <T>     结果类型
+     * @return RowMapper<T>
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> of(Class<T> type, List<String> columns) {
+        return (RowMapper<T>) CACHE.computeIfAbsent(Arrays.asList(type, columns), key -> new BeanRowMapper<>(type, columns));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T map(JsonArray row) {
+        T bean;
+        try {
+            bean = (T) (Object) constructor.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot instantiate " + type.getName(), e);
+        }
+        int size = Math.min(row.size(), properties.length);
+        for (int i = 0; i < size; i++) {
+            Property property = properties[i];
+            if (property != null) {
+                property.set(bean, row.getValue(i));
+            }
+        }
+        return bean;
+    }
+
+    private static String normalize(String name) {
+        StringBuilder sb = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != '_') {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 收集可写属性，setter优先于字段，子类优先于父类。
+     */
+    private static Map<String, Property> properties(Class<?> type) {
+        Map<String, Property> properties = new HashMap<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                properties.putIfAbsent(normalize(field.getName()), new Property(field, null));
+            }
+        }
+        for (Method method : type.getMethods()) {
+            if (method.getName().length() > 3 && method.getName().startsWith("set")
+                    && method.getParameterCount() == 1 && !Modifier.isStatic(method.getModifiers())) {
+                properties.put(normalize(method.getName().substring(3)), new Property(null, method));
+            }
+        }
+        return properties;
+    }
+
+    private static final class Property {
+        private final String name;
+        private final Class<?> type;
+        private final MethodHandle setter;
+
+        private Property(Field field, Method method) {
+            this.name = field != null ? field.getName() : method.getName();
+            this.type = field != null ? field.getType() : method.getParameterTypes()[0];
+            try {
+                MethodHandle handle = field != null ? MethodHandles.lookup().unreflectSetter(field) : MethodHandles.lookup().unreflect(method);
+                this.setter = handle.asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException("cannot access " + name, e);
+            }
+        }
+
+        private void set(Object bean, Object value) {
+            Object converted = convert(value, type);
+            if (converted == null && type.isPrimitive()) {
+                return;
+            }
+            try {
+                setter.invokeExact(bean, converted);
+            } catch (Throwable e) {
+                throw new IllegalStateException("cannot set " + name, e);
+            }
+        }
+    }
+
+    /**
+     * 将jdbc返回的json类型值转换为属性类型。
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static Object convert(Object value, Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        if (value instanceof Number) {
+            Number n = (Number) value;
+            if (type == long.class || type == Long.class) {
+                return n.longValue();
+            } else if (type == int.class || type == Integer.class) {
+                return n.intValue();
+            } else if (type == double.class || type == Double.class) {
+                return n.doubleValue();
+            } else if (type == float.class || type == Float.class) {
+                return n.floatValue();
+            } else if (type == short.class || type == Short.class) {
+                return n.shortValue();
+            } else if (type == byte.class || type == Byte.class) {
+                return n.byteValue();
+            } else if (type == boolean.class || type == Boolean.class) {
+                return n.intValue() != 0;
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(n.toString());
+            } else if (type == BigInteger.class) {
+                return new BigDecimal(n.toString()).toBigInteger();
+            }
+        }
+        if (type == boolean.class && value instanceof Boolean) {
+            return value;
+        }
+        if (type == String.class) {
+            return String.valueOf(value);
+        }
+        if (value instanceof String) {
+            String s = (String) value;
+            if (type == BigDecimal.class) {
+                return new BigDecimal(s);
+            } else if (type == Instant.class) {
+                return Instant.parse(s);
+            } else if (type == LocalDateTime.class) {
+                return s.endsWith("Z") ? LocalDateTime.ofInstant(Instant.parse(s), ZoneOffset.UTC) : LocalDateTime.parse(s);
+            } else if (type == LocalDate.class) {
+                return LocalDate.parse(s.length() > 10 ? s.substring(0, 10) : s);
+            } else if (type == LocalTime.class) {
+                return LocalTime.parse(s);
+            } else if (type == OffsetDateTime.class) {
+                return OffsetDateTime.parse(s);
+            } else if (type == Date.class) {
+                return Date.from(Instant.parse(s));
+            } else if (type == UUID.class) {
+                return UUID.fromString(s);
+            } else if (type == byte[].class) {
+                return Base64.getDecoder().decode(s);
+            } else if (type.isEnum()) {
+                return Enum.valueOf((Class<? extends Enum>) type, s);
+            }
+        }
+        throw new IllegalArgumentException(String.format("cannot convert %s to %s", value.getClass().getName(), type.getName()));
+    }
+}
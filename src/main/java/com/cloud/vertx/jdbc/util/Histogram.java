@@ -0,0 +1,92 @@
+package com.cloud.vertx.jdbc.util;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 耗时直方图，线程安全，按微秒的2的幂分桶，分位数取桶上界(误差不超过2倍)。
+ *
+ * @author zhoudingyun
+ */
+public class Histogram {
+    private static final int BUCKETS = 40;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时。
+     *
+     * @param nanos 耗时(纳秒)
+     */
+    public void record(long nanos) {
+        long micros = Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 1);
+        buckets[Math.min(63 - Long.numberOfLeadingZeros(micros), BUCKETS - 1)].increment();
+        count.increment();
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * 总耗时(纳秒)。
+     *
+     * @return long
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * 分位数(毫秒)。
+     *
+     * @param quantile 分位 -> 0.99
+     * @return double
+     */
+    public double percentile(double quantile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                // 桶上界不超过实际最大值
+                return Math.min(1L << (i + 1), TimeUnit.NANOSECONDS.toMicros(max.get())) / 1000.0;
+            }
+        }
+        return max.get() / 1_000_000.0;
+    }
+
+    /**
+     * 统计信息，耗时单位毫秒。
+     *
+     * @return {count, mean, p50, p95, p99, max}
+     */
+    public JsonObject toJson() {
+        long total = count.sum();
+        return new JsonObject()
+                .put("count", total)
+                .put("mean", total == 0 ? 0.0 : sum.sum() / 1_000_000.0 / total)
+                .put("p50", percentile(0.5))
+                .put("p95", percentile(0.95))
+                .put("p99", percentile(0.99))
+                .put("max", max.get() / 1_000_000.0);
+    }
+}
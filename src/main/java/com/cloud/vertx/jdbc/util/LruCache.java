@@ -0,0 +1,202 @@
+package com.cloud.vertx.jdbc.util;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 有界LRU缓存，线程安全，可设置写入后过期时间，记录命中、未命中、淘汰和过期次数。
+ *
+ * @author zhoudingyun
+ */
+public class LruCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Node<V>> map;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * 构造方法，缓存不过期。
+     *
+     * @param maxSize 最大条目数
+     */
+    public LruCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    /**
+     * 构造方法。
+     *
+     * @param maxSize   最大条目数
+     * @param ttlMillis 写入后过期时间(毫秒)，小于等于0时不过期
+     */
+    public LruCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException(String.format("maxSize(%d) <= 0", maxSize));
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(ttlMillis) : 0;
+        this.map = new LinkedHashMap<K, Node<V>>(Math.min(maxSize, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Node<V>> eldest) {
+                if (size() > LruCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private Node<V> node(V value) {
+        return new Node<>(value, ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0);
+    }
+
+    /**
+     * 获取未过期的节点，过期节点直接移除，调用方需持有锁。
+     */
+    private Node<V> live(K key) {
+        Node<V> node = map.get(key);
+        if (node != null && node.expireAt != 0 && node.expireAt - System.nanoTime() <= 0) {
+            map.remove(key);
+            expirations.increment();
+            return null;
+        }
+        return node;
+    }
+
+    /**
+     * 获取缓存值。
+     *
+     * @param key 键
+     * @return 缓存值 | 不存在或已过期返回null
+     */
+    public V get(K key) {
+        Node<V> node;
+        synchronized (this) {
+            node = live(key);
+        }
+        if (node == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return node.value;
+    }
+
+    /**
+     * 获取缓存值，不存在时调用loader生成并放入缓存。
+     * loader在锁外执行，并发未命中时可能被调用多次，以先放入的值为准。
+     *
+     * @param key    键
+     * @param loader 值生成函数
+     * @return 缓存值
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V created = loader.apply(key);
+        if (created == null) {
+            return null;
+        }
+        synchronized (this) {
+            Node<V> node = live(key);
+            if (node != null) {
+                return node.value;
+            }
+            map.put(key, node(created));
+        }
+        return created;
+    }
+
+    /**
+     * 放入缓存。
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public synchronized void put(K key, V value) {
+        map.put(key, node(value));
+    }
+
+    /**
+     * 移除缓存。
+     *
+     * @param key 键
+     * @return 被移除的值
+     */
+    public synchronized V remove(K key) {
+        Node<V> node = map.remove(key);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * 清空缓存。
+     */
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    /**
+     * 当前条目数，包含尚未清理的过期条目。
+     *
+     * @return int
+     */
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public long expirations() {
+        return expirations.sum();
+    }
+
+    /**
+     * 缓存统计信息。
+     *
+     * @return {size, maxSize, hits, misses, evictions, expirations}
+     */
+    public JsonObject stats() {
+        return new JsonObject()
+                .put("size", size())
+                .put("maxSize", maxSize)
+                .put("hits", hits())
+                .put("misses", misses())
+                .put("evictions", evictions())
+                .put("expirations", expirations());
+    }
+
+    private static final class Node<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Node(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
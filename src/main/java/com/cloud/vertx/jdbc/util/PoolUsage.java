@@ -0,0 +1,71 @@
+package com.cloud.vertx.jdbc.util;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接池使用统计，线程安全，记录获取次数、失败次数、未归还连接数和等待时间。
+ * 多个repository共用一个连接池时各自记录，用于按表查看连接占用。
+ *
+ * @author zhoudingyun
+ */
+public class PoolUsage {
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAccumulator maxOutstanding = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 包装获取连接的回调，连接获取完成时记录。
+     *
+     * @param handler 回调函数
+     * @param <T>     连接类型
+     * @return Handler
+     */
+    public <T> Handler<AsyncResult<T>> track(Handler<AsyncResult<T>> handler) {
+        long start = System.nanoTime();
+        return r -> {
+            waitNanos.add(System.nanoTime() - start);
+            if (r.succeeded()) {
+                acquired.increment();
+                maxOutstanding.accumulate(outstanding.incrementAndGet());
+            } else {
+                failed.increment();
+            }
+            handler.handle(r);
+        };
+    }
+
+    /**
+     * 记录连接归还。
+     */
+    public void released() {
+        outstanding.decrementAndGet();
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * 统计信息。
+     *
+     * @return {acquired, failed, outstanding, maxOutstanding, avgWaitMillis}
+     */
+    public JsonObject toJson() {
+        long acquires = acquired.sum() + failed.sum();
+        return new JsonObject()
+                .put("acquired", acquired.sum())
+                .put("failed", failed.sum())
+                .put("outstanding", outstanding.get())
+                .put("maxOutstanding", maxOutstanding.get())
+                .put("avgWaitMillis", acquires == 0 ? 0.0 : (double) TimeUnit.NANOSECONDS.toMicros(waitNanos.sum()) / acquires / 1000);
+    }
+}
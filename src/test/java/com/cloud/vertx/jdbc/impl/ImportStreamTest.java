@@ -0,0 +1,120 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.sql.SQLConnection;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 流式导入测试。
+ *
+ * @author zhoudingyun
+ */
+public class ImportStreamTest {
+    private static Vertx vertx;
+    private static JdbcRepositoryImpl repository;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject()
+                .put("url", "jdbc:h2:mem:import;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+                .put("driver_class", "org.h2.Driver")
+                .put("dialect", "h2");
+        repository = new JdbcRepositoryImpl(vertx, config, "users");
+        await(repository.execute("create table users(id int primary key, name varchar(20))"));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    public void invalidBatchSizeLeavesStream() throws Exception {
+        RecordingStream rows = new RecordingStream();
+        try {
+            await(repository.importStream(rows, 0, 10));
+            fail("expected IllegalArgumentException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(new ArrayList<String>(), rows.calls);
+    }
+
+    @Test
+    public void invalidBatchSizeOnConnectionLeavesStream() throws Exception {
+        RecordingStream rows = new RecordingStream();
+        SQLConnection connection = await(repository.getConnection());
+        CompletableFuture<Throwable> result = new CompletableFuture<>();
+        repository.importStream(connection, rows, -1, 10, null, r -> result.complete(r.cause()));
+        connection.close();
+        assertTrue(result.get(30, TimeUnit.SECONDS) instanceof IllegalArgumentException);
+        assertEquals(new ArrayList<String>(), rows.calls);
+    }
+
+    /**
+     * 记录暂停、恢复调用的数据源。
+     */
+    private static class RecordingStream implements ReadStream<JsonObject> {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public ReadStream<JsonObject> exceptionHandler(Handler<Throwable> handler) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<JsonObject> handler(Handler<JsonObject> handler) {
+            return this;
+        }
+
+        @Override
+        public ReadStream<JsonObject> pause() {
+            calls.add("pause");
+            return this;
+        }
+
+        @Override
+        public ReadStream<JsonObject> resume() {
+            calls.add("resume");
+            return this;
+        }
+
+        @Override
+        public ReadStream<JsonObject> fetch(long amount) {
+            calls.add("fetch");
+            return this;
+        }
+
+        @Override
+        public ReadStream<JsonObject> endHandler(Handler<Void> handler) {
+            return this;
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.onComplete(r -> {
+            if (r.succeeded()) {
+                result.complete(r.result());
+            } else {
+                result.completeExceptionally(r.cause());
+            }
+        });
+        return result.get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,100 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.JdbcRepository;
+import com.cloud.vertx.jdbc.KeysetPage;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 键集分页游标测试，游标来自客户端，篡改后不能改变生成的sql。
+ *
+ * @author zhoudingyun
+ */
+public class KeysetCursorTest {
+    private static Vertx vertx;
+    private static JdbcRepository repository;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject()
+                .put("url", "jdbc:h2:mem:keyset;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+                .put("driver_class", "org.h2.Driver");
+        repository = new JdbcRepositoryImpl(vertx, config, "users");
+        await(repository.execute("create table users(id int primary key, name varchar(20))"));
+        List<JsonObject> rows = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            rows.add(new JsonObject().put("id", i).put("name", "n" + i));
+        }
+        await(repository.createAll(rows));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        vertx.close();
+    }
+
+    @Test
+    public void findNext() throws Exception {
+        KeysetPage first = await(repository.findAfter(new JsonObject(), "id", null, 2, null));
+        assertEquals(2, first.getRows().size());
+        assertTrue(first.hasMore());
+        KeysetPage second = await(repository.findNext(new JsonObject(), "id", first.getCursor(), 2, null));
+        assertEquals(Integer.valueOf(3), second.getRows().get(0).getInteger("id"));
+    }
+
+    @Test
+    public void tamperedCursorKey() {
+        String cursor = KeysetPage.encodeCursor("1=1 or id", 0);
+        assertInvalid(repository.findNext(new JsonObject(), "id", cursor, 2, null));
+        assertInvalid(repository.findNext(null, new JsonArray(), "id", cursor, 2, null));
+    }
+
+    @Test
+    public void otherCursorKey() {
+        String cursor = KeysetPage.encodeCursor("name", "n2");
+        assertInvalid(repository.findNext(new JsonObject(), "id", cursor, 2, null));
+    }
+
+    @Test
+    public void invalidOrderKey() {
+        assertInvalid(repository.findAfter(new JsonObject(), "id desc, name", 0, 2, null));
+        assertInvalid(repository.findAfter(null, new JsonArray(), "1=1 or id", 0, 2, null));
+    }
+
+    private static void assertInvalid(Future<KeysetPage> future) {
+        try {
+            await(future);
+            fail("expected IllegalArgumentException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.onComplete(r -> {
+            if (r.succeeded()) {
+                result.complete(r.result());
+            } else {
+                result.completeExceptionally(r.cause());
+            }
+        });
+        return result.get(30, TimeUnit.SECONDS);
+    }
+}
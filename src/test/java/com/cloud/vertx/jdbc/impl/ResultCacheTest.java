@@ -0,0 +1,63 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.ResultSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 结果缓存测试。
+ *
+ * @author zhoudingyun
+ */
+public class ResultCacheTest {
+    private static final String SQL = "select id, name from user where id = ?";
+
+    @Test
+    public void putCopiesRows() {
+        ResultCache cache = new ResultCache(new JsonObject());
+        List<Object> key = ResultCache.key(SQL, new JsonArray().add(1));
+        List<JsonArray> rows = new ArrayList<>();
+        rows.add(new JsonArray().add(1).add("a"));
+        ResultSet resultSet = new ResultSet(new ArrayList<>(Collections.singletonList("id")), rows, null);
+        cache.put(key, SQL, resultSet, cache.versions(SQL));
+
+        rows.get(0).set(1, "changed");
+        rows.add(new JsonArray().add(2).add("b"));
+        ResultSet cached = cache.get(key);
+        assertEquals(1, cached.getResults().size());
+        assertEquals("a", cached.getResults().get(0).getString(1));
+    }
+
+    @Test
+    public void getReturnsCopies() {
+        ResultCache cache = new ResultCache(new JsonObject());
+        List<Object> key = ResultCache.key(SQL, new JsonArray().add(1));
+        List<JsonArray> rows = new ArrayList<>();
+        rows.add(new JsonArray().add(1).add("a"));
+        cache.put(key, SQL, new ResultSet(new ArrayList<>(Collections.singletonList("id")), rows, null), cache.versions(SQL));
+
+        ResultSet first = cache.get(key);
+        first.getResults().get(0).set(1, "changed");
+        first.getResults().clear();
+        ResultSet second = cache.get(key);
+        assertEquals(1, second.getResults().size());
+        assertEquals("a", second.getResults().get(0).getString(1));
+    }
+
+    @Test
+    public void invalidate() {
+        ResultCache cache = new ResultCache(new JsonObject());
+        List<Object> key = ResultCache.key(SQL, new JsonArray().add(1));
+        long[] versions = cache.versions(SQL);
+        cache.invalidate("user");
+        cache.put(key, SQL, new ResultSet(Collections.singletonList("id"), new ArrayList<>(), null), versions);
+        assertNull(cache.get(key));
+    }
+}
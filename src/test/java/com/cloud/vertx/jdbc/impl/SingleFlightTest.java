@@ -0,0 +1,60 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 相同查询合并测试。
+ *
+ * @author zhoudingyun
+ */
+public class SingleFlightTest {
+
+    @Test
+    public void shareInFlight() {
+        SingleFlight flight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        Promise<JsonObject> db = Promise.promise();
+        Future<JsonObject> first = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return db.future();
+        }, JsonObject::copy);
+        Future<JsonObject> second = flight.execute("k", () -> {
+            calls.incrementAndGet();
+            return Future.succeededFuture(new JsonObject());
+        }, JsonObject::copy);
+
+        db.complete(new JsonObject().put("id", 1));
+        assertEquals(1, calls.get());
+        assertEquals(Integer.valueOf(1), second.result().getInteger("id"));
+        // 等待者拿到副本
+        assertNotSame(first.result(), second.result());
+    }
+
+    @Test
+    public void notShareAfterInvalidate() {
+        SingleFlight flight = new SingleFlight();
+        Promise<JsonObject> before = Promise.promise();
+        flight.execute("k", before::future, JsonObject::copy);
+
+        flight.invalidate();
+        Future<JsonObject> after = flight.execute("k", () -> Future.succeededFuture(new JsonObject().put("name", "new")), JsonObject::copy);
+        before.complete(new JsonObject().put("name", "old"));
+        assertEquals("new", after.result().getString("name"));
+    }
+
+    @Test
+    public void notShareCompleted() {
+        SingleFlight flight = new SingleFlight();
+        flight.execute("k", () -> Future.succeededFuture(new JsonObject().put("n", 1)), JsonObject::copy);
+        Future<JsonObject> next = flight.execute("k", () -> Future.succeededFuture(new JsonObject().put("n", 2)), JsonObject::copy);
+        assertEquals(Integer.valueOf(2), next.result().getInteger("n"));
+        assertEquals(2L, (long) flight.stats().getLong("executed"));
+    }
+}
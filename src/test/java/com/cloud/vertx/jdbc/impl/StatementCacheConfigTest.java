@@ -0,0 +1,62 @@
+package com.cloud.vertx.jdbc.impl;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 预编译语句缓存配置测试。
+ *
+ * @author zhoudingyun
+ */
+public class StatementCacheConfigTest {
+    private static final String AGROAL = "io.vertx.ext.jdbc.spi.impl.AgroalCPDataSourceProvider";
+    private static final String HIKARI = "io.vertx.ext.jdbc.spi.impl.HikariCPDataSourceProvider";
+
+    @Test
+    public void c3p0() {
+        JsonObject config = StatementCacheConfig.apply(new JsonObject()
+                .put("url", "jdbc:h2:mem:test")
+                .put("statement_cache", new JsonObject().put("size", 128)));
+        assertEquals(Integer.valueOf(128), config.getInteger("max_statements_per_connection"));
+    }
+
+    @Test
+    public void hikari() {
+        JsonObject config = StatementCacheConfig.apply(pooled(HIKARI, "jdbc:postgresql://localhost/test"));
+        assertEquals(Integer.valueOf(128), config.getJsonObject("datasource").getInteger("preparedStatementCacheQueries"));
+    }
+
+    @Test
+    public void agroalAppendsToUrl() {
+        JsonObject config = StatementCacheConfig.apply(pooled(AGROAL, "jdbc:mysql://localhost/test?useSSL=false"));
+        assertEquals("jdbc:mysql://localhost/test?useSSL=false&cachePrepStmts=true&prepStmtCacheSize=128"
+                + "&prepStmtCacheSqlLimit=2048&useServerPrepStmts=false", config.getString("jdbcUrl"));
+    }
+
+    @Test
+    public void agroalKeepsSameValue() {
+        JsonObject config = StatementCacheConfig.apply(pooled(AGROAL, "jdbc:postgresql://localhost/test?preparedStatementCacheQueries=128"));
+        assertEquals("jdbc:postgresql://localhost/test?preparedStatementCacheQueries=128", config.getString("jdbcUrl"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void agroalConflict() {
+        StatementCacheConfig.apply(pooled(AGROAL, "jdbc:mysql://localhost/test?prepStmtCacheSize=64"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void hikariConflict() {
+        JsonObject config = pooled(HIKARI, "jdbc:postgresql://localhost/test");
+        config.put("datasource", new JsonObject().put("preparedStatementCacheQueries", 64));
+        StatementCacheConfig.apply(config);
+    }
+
+    private static JsonObject pooled(String provider, String url) {
+        return new JsonObject()
+                .put("provider_class", provider)
+                .put("jdbcUrl", url)
+                .put("statement_cache", new JsonObject().put("size", 128));
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloud.vertx.jdbc.impl;
+
+import com.cloud.vertx.jdbc.JdbcRepository;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * 批量新增或更新测试。
+ *
+ * @author zhoudingyun
+ */
+public class UpsertAllTest {
+    private static final JsonArray ID = new JsonArray().add("id");
+
+    private static Vertx vertx;
+    private static JdbcRepository repository;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject()
+                .put("url", "jdbc:h2:mem:upsert;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")
+                .put("driver_class", "org.h2.Driver")
+                .put("dialect", "h2");
+        repository = new JdbcRepositoryImpl(vertx, config, "users");
+        await(repository.execute("create table users(id int primary key, name varchar(20), age int)"));
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        vertx.close();
+    }
+
+    @Before
+    public void clear() throws Exception {
+        await(repository.execute("delete from users"));
+    }
+
+    @Test
+    public void duplicateKeysLastWins() throws Exception {
+        await(repository.upsertAll(Arrays.asList(
+                new JsonObject().put("id", 1).put("name", "a"),
+                new JsonObject().put("id", 2).put("name", "b"),
+                new JsonObject().put("id", 1).put("name", "c")), ID));
+        assertEquals("c", await(repository.findOne(new JsonObject().put("id", 1), null)).getString("name"));
+        assertEquals("b", await(repository.findOne(new JsonObject().put("id", 2), null)).getString("name"));
+    }
+
+    @Test
+    public void keepOrderAcrossColumnSets() throws Exception {
+        await(repository.upsertAll(Arrays.asList(
+                new JsonObject().put("id", 1).put("name", "a"),
+                new JsonObject().put("id", 1).put("name", "b").put("age", 2),
+                new JsonObject().put("id", 1).put("name", "c")), ID));
+        JsonObject row = await(repository.findOne(new JsonObject().put("id", 1), null));
+        assertEquals("c", row.getString("name"));
+        assertEquals(Integer.valueOf(2), row.getInteger("age"));
+    }
+
+    @Test
+    public void missingConflictKeyWritesNothing() throws Exception {
+        try {
+            await(repository.upsertAll(Arrays.asList(
+                    new JsonObject().put("id", 1).put("name", "a"),
+                    new JsonObject().put("name", "b")), ID));
+            fail("expected IllegalArgumentException");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+        assertEquals(Integer.valueOf(0), await(repository.count(new JsonObject())));
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.onComplete(r -> {
+            if (r.succeeded()) {
+                result.complete(r.result());
+            } else {
+                result.completeExceptionally(r.cause());
+            }
+        });
+        return result.get(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,49 @@
+package com.cloud.vertx.jdbc.sql;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * 提取语句涉及的表名。
+ *
+ * @author zhoudingyun
+ */
+public class SqlTablesTest {
+
+    private static Set<String> tables(String... names) {
+        return new LinkedHashSet<>(Arrays.asList(names));
+    }
+
+    @Test
+    public void joinAndSubQuery() {
+        assertEquals(tables("user", "order", "address"),
+                SqlTables.of("select * from db.user u join `order` o on u.id = o.uid where id in (select uid from address)"));
+    }
+
+    @Test
+    public void commaSeparated() {
+        assertEquals(tables("a", "b", "c"), SqlTables.of("select a.x from a, b y, [dbo].[c] where a.id = y.id"));
+        assertEquals(tables("a", "b"), SqlTables.of("SELECT * FROM a AS x, b AS y WHERE x.id = y.id"));
+    }
+
+    @Test
+    public void writes() {
+        assertEquals(tables("user"), SqlTables.of("update user set name = ? where id = ?"));
+        assertEquals(tables("log"), SqlTables.of("insert into \"Log\" (id) values (?)"));
+        assertEquals(tables("user"), SqlTables.of("delete from user where id = ?"));
+        assertEquals(tables("user"), SqlTables.of("truncate table user"));
+        assertEquals(tables("user"), SqlTables.of("merge into user t using (select ? id from dual) s on (t.id = s.id)"));
+    }
+
+    @Test
+    public void noTable() {
+        assertEquals(Collections.emptySet(), SqlTables.of("select 1 from dual"));
+        assertEquals(Collections.emptySet(), SqlTables.of(null));
+    }
+}
@@ -0,0 +1,139 @@
+package com.cloud.vertx.jdbc.sql;
+
+import com.cloud.vertx.jdbc.enums.UpsertSyntax;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * 各内置方言生成的语句。
+ *
+ * @author zhoudingyun
+ */
+public class StandardDialectTest {
+    private static final String[] COLUMNS = {"id", "name"};
+
+    private static SqlBuilder builder(Dialect dialect) {
+        return new TSqlBuilder(dialect, false);
+    }
+
+    private static String page(Dialect dialect) {
+        return builder(dialect).select(COLUMNS).from("user").where("age > ?").orderBy("id").limit(10).offset(20).toString();
+    }
+
+    private static String limit(Dialect dialect) {
+        return builder(dialect).select(COLUMNS).from("user").where("age > ?").limit(10).toString();
+    }
+
+    private static String upsert(Dialect dialect, int rows) {
+        return builder(dialect).upsert(null).into("user").values(COLUMNS).onConflict("id").rows(rows).toString();
+    }
+
+    @Test
+    public void mysql() {
+        Dialect d = StandardDialect.MySQL;
+        assertEquals("select id, name from user where age > ? order by id limit 10 offset 20", page(d));
+        assertEquals("select id, name from user where age > ? limit 10", limit(d));
+        assertEquals(" limit ?, ?", d.pageClause(true));
+        assertEquals(" limit ?", d.limitClause(false));
+        assertEquals("insert into user (id, name) values (?, ?), (?, ?) on duplicate key update name = values(name)", upsert(d, 2));
+        assertNull(d.returning("insert into user (name) values (?)", new String[]{"id"}));
+        assertEquals("`user`", d.quote("user"));
+    }
+
+    @Test
+    public void postgresql() {
+        Dialect d = StandardDialect.PostgreSQL;
+        assertEquals("select id, name from user where age > ? order by id limit 10 offset 20", page(d));
+        assertEquals(" offset ? rows fetch next ? rows only", d.pageClause(false));
+        assertEquals(" limit ?", d.limitClause(true));
+        assertEquals("insert into user (id, name) values (?, ?), (?, ?) on conflict (id) do update set name = excluded.name", upsert(d, 2));
+        assertEquals("insert into user (name) values (?) returning id", d.returning("insert into user (name) values (?)", new String[]{"id"}));
+        assertEquals("\"user\"", d.quote("user"));
+    }
+
+    @Test
+    public void h2() {
+        Dialect d = StandardDialect.H2;
+        assertEquals(" offset ? rows fetch next ? rows only", d.pageClause(true));
+        assertEquals("merge into user t using (values (?, ?), (?, ?)) s (id, name) on (t.id = s.id)"
+                + " when matched then update set name = s.name when not matched then insert (id, name) values (s.id, s.name)", upsert(d, 2));
+        assertEquals("select id from final table (insert into user (name) values (?))",
+                d.returning("insert into user (name) values (?)", new String[]{"id"}));
+    }
+
+    @Test
+    public void oracle() {
+        Dialect d = StandardDialect.Oracle;
+        assertEquals("select id, name from user where age > ? order by id offset 20 rows fetch next 10 rows only", page(d));
+        assertEquals("select id, name from user where age > ? fetch first 10 rows only", limit(d));
+        assertEquals(" offset ? rows fetch next ? rows only", d.pageClause(true));
+        assertEquals(" fetch first ? rows only", d.limitClause(true));
+        assertEquals("merge into user t using (select ? id, ? name from dual union all select ? id, ? name from dual) s on (t.id = s.id)"
+                + " when matched then update set name = s.name when not matched then insert (id, name) values (s.id, s.name)", upsert(d, 2));
+        assertNull(d.returning("insert into user (name) values (?)", new String[]{"id"}));
+    }
+
+    @Test
+    public void sqlserver() {
+        Dialect d = StandardDialect.SqlServer;
+        assertEquals("select id, name from user where age > ? order by id offset 20 rows fetch next 10 rows only", page(d));
+        assertEquals("select top 10 id, name from user where age > ?", limit(d));
+        assertEquals(" offset ? rows fetch next ? rows only", d.pageClause(true));
+        assertEquals(" order by (select null) offset ? rows fetch next ? rows only", d.pageClause(false));
+        assertEquals(" order by (select null) offset 0 rows fetch next ? rows only", d.limitClause(false));
+        assertEquals("merge into user t using (values (?, ?)) s (id, name) on (t.id = s.id)"
+                + " when matched then update set name = s.name when not matched then insert (id, name) values (s.id, s.name);", upsert(d, 1));
+        assertEquals("insert into user (name) output inserted.id values (?)",
+                d.returning("insert into user (name) values (?)", new String[]{"id"}));
+        assertEquals("[user]", d.quote("user"));
+    }
+
+    @Test
+    public void insertLimits() {
+        assertEquals(65535, StandardDialect.MySQL.maxParameters());
+        assertEquals(Integer.MAX_VALUE, StandardDialect.MySQL.maxInsertRows());
+        assertEquals(32767, StandardDialect.PostgreSQL.maxParameters());
+        assertEquals(32767, StandardDialect.H2.maxParameters());
+        // Oracle不支持多行values，改用jdbc批处理
+        assertEquals(1, StandardDialect.Oracle.maxInsertRows());
+        assertEquals(2100, StandardDialect.SqlServer.maxParameters());
+        assertEquals(1000, StandardDialect.SqlServer.maxInsertRows());
+        assertEquals("insert into user (id, name) values (?, ?), (?, ?), (?, ?)",
+                builder(StandardDialect.PostgreSQL).insert().into("user").values(COLUMNS).rows(3).toString());
+    }
+
+    @Test
+    public void upsertSyntax() {
+        assertEquals(UpsertSyntax.OnDuplicateKey, StandardDialect.MySQL.upsertSyntax());
+        assertEquals(UpsertSyntax.OnConflict, StandardDialect.PostgreSQL.upsertSyntax());
+        assertEquals(UpsertSyntax.Merge, StandardDialect.H2.upsertSyntax());
+        assertEquals(UpsertSyntax.Merge, StandardDialect.Oracle.upsertSyntax());
+        assertEquals(UpsertSyntax.Merge, StandardDialect.SqlServer.upsertSyntax());
+        // 配置的语法优先于方言默认语法
+        assertEquals("insert into user (id, name) values (?, ?) on conflict (id) do update set name = excluded.name",
+                builder(StandardDialect.MySQL).upsert(UpsertSyntax.OnConflict).into("user").values(COLUMNS).onConflict("id").rows(1).toString());
+    }
+
+    @Test
+    public void quoteIdentifiers() {
+        assertEquals("select `id`, `name` from `db`.`user`", new TSqlBuilder(StandardDialect.MySQL, true).select(COLUMNS).from("db.user").toString());
+        assertEquals("select count(1) from [user]", new TSqlBuilder(StandardDialect.SqlServer, true).select("count(1)").from("user").toString());
+    }
+
+    @Test
+    public void detect() {
+        assertEquals(StandardDialect.MySQL, StandardDialect.fromUrl("jdbc:mariadb://localhost/db"));
+        assertEquals(StandardDialect.PostgreSQL, StandardDialect.fromUrl("jdbc:postgresql://localhost/db"));
+        assertEquals(StandardDialect.SqlServer, StandardDialect.fromUrl("jdbc:jtds:sqlserver://localhost/db"));
+        assertNull(StandardDialect.fromUrl("jdbc:sqlite:test.db"));
+        assertEquals(StandardDialect.Oracle, StandardDialect.fromProductName("Oracle"));
+        assertEquals(StandardDialect.SqlServer, StandardDialect.fromProductName("Microsoft SQL Server"));
+        assertEquals(StandardDialect.H2, StandardDialect.of("H2"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknown() {
+        StandardDialect.of("sqlite");
+    }
+}